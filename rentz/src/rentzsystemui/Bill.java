@@ -1,10 +1,7 @@
 package rentzsystemui;
 
-import java.io.PrintStream;
-import java.math.BigDecimal;
-import java.text.NumberFormat;
-import java.util.Locale;
-import javax.swing.JOptionPane;
+import java.time.LocalDate;
+import java.util.Objects;
 import vehicles.AbstractVehicle;
 
 
@@ -12,16 +9,18 @@ import vehicles.AbstractVehicle;
  * Bill object to return to the current user after
  * completing renting process.
  *
+ * <p>A bill is priced once, when it is made, with the fares in force at that moment, so a
+ * later change of fares never changes what the renter is charged; see {@link #getPrice()}.
+ * It has no output of its own. Showing it is left to a {@link BillRenderer}, so bills can be
+ * rendered to a file, a dialog or a machine-readable feed as needed.</p>
+ *
  * @author Ricardo Salas
  *
  */
 public class Bill {
 
-  /** * Currency format for US currency system. */
-  public static final NumberFormat NF = NumberFormat.getCurrencyInstance(Locale.US);
-
-  /** * A unique integer value. */
-  private final int myBillId;
+  /** * A unique bill ID, see {@link BillIdAllocator}. */
+  private final long myBillId;
 
   /** * A User object. */
   private final User myPrimaryUser;
@@ -29,94 +28,111 @@ public class Bill {
   /** * A Vehicle object. */
   private final AbstractVehicle myVehicle;
 
+  /** * The first day of the rental. */
+  private final LocalDate myFrom;
+
   /** * An integer representing the number of days Vehicle is rented. */
   private final int myNumDays;
 
-  /** * Total bill amount. */
-  private BigDecimal myBillAmount;
+  /** * The priced lines of the bill. */
+  private final PriceBreakdown myPrice;
 
   /**
-   * Constructs a new bill class with the provided parameters.
-   * This constructor initializes the relevant instance fields of the Bill class.   *
+   * Constructs a new bill class with the provided parameters for a rental starting today.
+   * This constructor initializes the relevant instance fields of the Bill class.
    *
-   * @param theBillId A unique integer value assigned to the bill.
+   * @param theBillId A unique ID assigned to the bill.
    * @param thePrimaryUser A User object.
    * @param theVehicle A Vehicle object.
    * @param theNumDays An integer representing the number of days Vehicle is rented.
    */
-  public Bill(final int theBillId, final User thePrimaryUser,
+  public Bill(final long theBillId, final User thePrimaryUser,
                 final AbstractVehicle theVehicle, final int theNumDays) {
+    this(theBillId, thePrimaryUser, theVehicle, LocalDate.now(), theNumDays);
+  }
+
+  /**
+   * Constructs a new bill class with the provided parameters.
+   *
+   * @param theBillId A unique ID assigned to the bill.
+   * @param thePrimaryUser A User object.
+   * @param theVehicle A Vehicle object.
+   * @param theFrom The first day of the rental.
+   * @param theNumDays An integer representing the number of days Vehicle is rented.
+   */
+  public Bill(final long theBillId, final User thePrimaryUser,
+                final AbstractVehicle theVehicle, final LocalDate theFrom,
+                final int theNumDays) {
 
     this.myBillId = theBillId;
-    this.myPrimaryUser = thePrimaryUser;
-    this.myVehicle = theVehicle;
+    this.myPrimaryUser = Objects.requireNonNull(thePrimaryUser);
+    this.myVehicle = Objects.requireNonNull(theVehicle);
+    this.myFrom = Objects.requireNonNull(theFrom);
     this.myNumDays = theNumDays;
-    this.myBillAmount = new BigDecimal("0.0");
+    this.myPrice = PricingEngine.price(theVehicle, theNumDays,
+                                       Boolean.TRUE.equals(thePrimaryUser.getMyVipStatus()));
   }
 
   /**
-   * Computes and prints the total bill amount.
+   * Retrieves the priced lines of the bill, as priced when the bill was made.
    *
-   * @param theOutput The print stream to allow multiple outputs of the bill.
+   * @return the breakdown.
    */
-  public void computeAndPrintAmount(final PrintStream theOutput) {
-
-    theOutput.println("----Cost Information----");
-    theOutput.println("RentalPerDay:");
-        
-    final BigDecimal calculateRent = myVehicle.calculateRentalAmount();
-    theOutput.println("Cost per Day: " + NF.format(calculateRent));
-    theOutput.println("No.of Rental days: " + myNumDays);
-
-    final BigDecimal numOfDays = new BigDecimal(myNumDays);
-
-    final BigDecimal totalAmountBefore = calculateRent.multiply(numOfDays);
-    theOutput.println("Total Amount: " + NF.format(totalAmountBefore));
-
-    final BigDecimal onePercentRate = new BigDecimal("0.01");
-
-    final BigDecimal insurance = totalAmountBefore.multiply(onePercentRate);
-    theOutput.println("Insurance: " + NF.format(insurance));
-
-    BigDecimal vipStatus = new BigDecimal("0.00");
-    String vipDiscount = "VIPDiscount: ";
-
-    if (myPrimaryUser.getMyVipStatus()) {
-      vipDiscount = "VIPDiscount: -";
-      vipStatus = totalAmountBefore.multiply(onePercentRate);
-      theOutput.println(vipDiscount + NF.format(vipStatus));
+  public PriceBreakdown getPrice() {
+    return myPrice;
+  }
 
-    } else {
-      theOutput.println("VIPDiscount: " + NF.format(vipStatus));
+  /**
+   * retrieves the bill Id.
+   *
+   *@return myBillId
+   */
+  public long getBillId() {
+    return myBillId;
+  }
 
-    }
+  /**
+   * Retrieves the user the bill is for.
+   *
+   * @return the renter.
+   */
+  public User getPrimaryUser() {
+    return myPrimaryUser;
+  }
 
-    final BigDecimal tax = totalAmountBefore.multiply(new BigDecimal("0.1"));
-    theOutput.println("Tax: " + NF.format(tax));
+  /**
+   * Retrieves whether the user gets the VIP discount.
+   *
+   * @return true for a VIP user.
+   */
+  public boolean isVip() {
+    return Boolean.TRUE.equals(myPrimaryUser.getMyVipStatus());
+  }
 
-    myBillAmount = totalAmountBefore.add(insurance).subtract(vipStatus).add(tax);
+  /**
+   * Retrieves the rented vehicle.
+   *
+   * @return the vehicle.
+   */
+  public AbstractVehicle getVehicle() {
+    return myVehicle;
+  }
 
-    theOutput.println("Total Rent: " + NF.format(myBillAmount));
-        
-        
-    JOptionPane.showMessageDialog(null,
-        "----Cost Information---- \n"
-        + " Rental per day: "
-        + "\n Cost per day: " + NF.format(calculateRent)
-        + "\n No. of Rental days: " + numOfDays
-        + "\n Total Amount: " + NF.format(totalAmountBefore)
-        + "\n Insurance: " + NF.format(insurance)
-        + "\n" + vipDiscount + NF.format(vipStatus)
-        + "\n Tax: " + NF.format(tax)
-        + "\n Total Rent: " + NF.format(myBillAmount));
+  /**
+   * Retrieves the first day of the rental.
+   *
+   * @return the first day.
+   */
+  public LocalDate getFrom() {
+    return myFrom;
   }
 
   /**
-   * retrieves the bill Id.
+   * Retrieves the number of rental days.
    *
-   *@return myBillId
+   * @return the number of days.
    */
-  public int getBillId() {
-    return myBillId;
+  public int getNumDays() {
+    return myNumDays;
   }
 }
@@ -0,0 +1,145 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out bill IDs that are unique across the process and across restarts.
+ *
+ * <p>The allocator reserves IDs a block at a time by writing the end of the block to its
+ * file, then hands out the IDs of the block from an {@link AtomicLong} without touching the
+ * disk. Only the thread that finds the block used up takes a lock, to reserve the next one.
+ * An ID is never handed out before the block holding it is on disk, so after a crash the
+ * allocator carries on past every ID it may have handed out; the rest of the block the crash
+ * interrupted is skipped.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class BillIdAllocator {
+
+  /** Number of IDs reserved with one write. */
+  public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+  /** The first ID of a new allocator. */
+  private static final long FIRST_ID = 1;
+
+  /** File that holds the end of the reserved block. */
+  private static final String BILL_IDS = "../rentz/src/"
+      + "registrationandcurrentrentallist/billids.txt";
+
+  /** The file the reserved block is kept in. */
+  private final String myFile;
+
+  /** Number of IDs reserved with one write. */
+  private final int myBlockSize;
+
+  /** The next ID to hand out. */
+  private final AtomicLong myNext;
+
+  /** The end of the reserved block; every ID below it is on disk as reserved. */
+  private volatile long myLimit;
+
+  /** The allocator of the default file, null until it was created. */
+  private static volatile BillIdAllocator sharedAllocator;
+
+  /**
+   * Creates an allocator over a file, carrying on after the last block it reserved.
+   *
+   * @param theFile the path of the file.
+   * @param theBlockSize the number of IDs to reserve with one write.
+   * @throws UncheckedIOException if the file could not be read.
+   * @throws IllegalStateException if the file does not hold a block end.
+   */
+  public BillIdAllocator(final String theFile, final int theBlockSize) {
+    if (theBlockSize < 1) {
+      throw new IllegalArgumentException("Invalid block size " + theBlockSize);
+    }
+    this.myFile = theFile;
+    this.myBlockSize = theBlockSize;
+    final long start = readLimit();
+    this.myNext = new AtomicLong(start);
+    this.myLimit = start;
+  }
+
+  /**
+   * Retrieves the allocator of the default file shared by the whole process, created on first
+   * use. An allocator that could not be created is tried again on the next call.
+   *
+   * @return the shared allocator.
+   * @throws UncheckedIOException if the file could not be read.
+   * @throws IllegalStateException if the file does not hold a block end.
+   */
+  public static BillIdAllocator shared() {
+    BillIdAllocator allocator = sharedAllocator;
+    if (allocator == null) {
+      synchronized (BillIdAllocator.class) {
+        allocator = sharedAllocator;
+        if (allocator == null) {
+          allocator = new BillIdAllocator(BILL_IDS, DEFAULT_BLOCK_SIZE);
+          sharedAllocator = allocator;
+        }
+      }
+    }
+    return allocator;
+  }
+
+  /**
+   * Hands out a new ID.
+   *
+   * @return an ID never handed out before.
+   * @throws UncheckedIOException if a new block could not be reserved.
+   */
+  public long next() {
+    while (true) {
+      final long id = myNext.get();
+      if (id < myLimit) {
+        if (myNext.compareAndSet(id, id + 1)) {
+          return id;
+        }
+      } else {
+        reserve(id);
+      }
+    }
+  }
+
+  /**
+   * Reserves the block that holds an ID, unless another thread already did.
+   *
+   * @param theId the ID that was found past the reserved block.
+   */
+  private synchronized void reserve(final long theId) {
+    if (theId < myLimit) {
+      return;
+    }
+    final long limit = Math.addExact(theId, myBlockSize);
+    try {
+      DurableFiles.replace(myFile, limit + System.lineSeparator());
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not reserve bill IDs in " + myFile, e);
+    }
+    myLimit = limit;
+  }
+
+  private long readLimit() {
+    final String text;
+    try {
+      DurableFiles.discardTemp(myFile);
+      text = new String(Files.readAllBytes(Paths.get(myFile)), StandardCharsets.UTF_8).trim();
+    } catch (final NoSuchFileException e) {
+      return FIRST_ID;
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not read bill IDs from " + myFile, e);
+    }
+    try {
+      return Math.max(FIRST_ID, Long.parseLong(text));
+    } catch (final NumberFormatException e) {
+      throw new IllegalStateException("Bill ID file " + myFile + " is damaged: " + text);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package rentzsystemui;
+
+/**
+ * Shows a priced {@link Bill} somewhere: in a file, a dialog or a machine-readable feed.
+ *
+ * <p>Renderers only read the bill and its {@link PriceBreakdown}. Amounts are formatted with
+ * {@link CurrencyFormat}, which is safe to use from any thread, and each renderer hands its
+ * output over in one piece, so one renderer may render many bills at once.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public interface BillRenderer {
+
+  /**
+   * Renders a bill.
+   *
+   * @param theBill the bill, priced on demand.
+   */
+  void render(Bill theBill);
+}
@@ -0,0 +1,483 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Every bill issued, kept in append-only segment files with in-memory indexes.
+ *
+ * <p>The bills are written in the binary {@link RecordFormat}, one bill record each, to the
+ * segment files bills-000001.dat, bills-000002.dat and so on in the store's directory. New
+ * bills are appended to the last segment through the {@link GroupCommitWriter}, so bills
+ * issued together reach the disk in one write; once the last segment has reached its size, the
+ * next bill starts a new one. Segments are never rewritten.</p>
+ *
+ * <p>When the store is first used it reads the segments once and indexes every bill by ID, by
+ * renter and by the day it was issued. A bill is found by ID with one hash lookup and read back
+ * from the mapped segment. The bills of a renter are listed from the renter's index, and the
+ * revenue of a range of days is summed from per-day totals without reading any bill.</p>
+ *
+ * <p>A bill is indexed at the end of the last segment as soon as it is queued. If an append
+ * fails, that bill and the offsets of those queued after it are wrong, so the store waits for
+ * the queued appends and then reads the indexes again from the segments.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class BillStore {
+
+  /** Size at which a segment is closed and the next bill starts a new one. */
+  public static final long DEFAULT_SEGMENT_BYTES = 8L * 1024 * 1024;
+
+  /** Directory that holds the segments of the shared store. */
+  private static final String BILLS = "../rentz/src/clientbills";
+
+  /** Start of the name of a segment file. */
+  private static final String SEGMENT_PREFIX = "bills-";
+
+  /** End of the name of a segment file. */
+  private static final String SEGMENT_SUFFIX = ".dat";
+
+  /** Date and time in the names of exported receipts. */
+  private static final DateTimeFormatter RECEIPT_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  /** Number of bits the segment number of a location is shifted by. */
+  private static final int SEGMENT_SHIFT = 32;
+
+  /** The directory of the segments. */
+  private final Path myDirectory;
+
+  /** Size at which a segment is closed. */
+  private final long mySegmentBytes;
+
+  /** The segment files, oldest first. */
+  private final List<Path> mySegments = new ArrayList<>();
+
+  /** The mapped segments, null until a bill is read from them. */
+  private final List<MappedByteBuffer> myMaps = new ArrayList<>();
+
+  /** Size of the last segment once every queued bill is written. */
+  private long myActiveSize;
+
+  /** Where each bill is, by ID: the segment number in the high half, the offset below. */
+  private final Map<Long, Long> myById = new HashMap<>();
+
+  /** The locations of the bills of each renter, in the order they were issued. */
+  private final Map<String, List<Long>> myByUser = new HashMap<>();
+
+  /** The bills issued on each day, by epoch day. */
+  private final TreeMap<Long, Day> myByDay = new TreeMap<>();
+
+  /** The most recently queued append, every earlier one completes before it. */
+  private CompletableFuture<Void> myLastAppend = CompletableFuture.completedFuture(null);
+
+  /** Whether the segments have been read yet. */
+  private boolean myLoaded;
+
+  /** Whether an append failed, so the indexes have to be read again from the segments. */
+  private volatile boolean myStale;
+
+  /**
+   * Holds the store shared by the process, created on first use.
+   */
+  private static final class SharedHolder {
+
+    /** The store in the default directory. */
+    private static final BillStore INSTANCE = new BillStore(BILLS, DEFAULT_SEGMENT_BYTES);
+  }
+
+  /**
+   * The bills issued on one day.
+   */
+  private static final class Day {
+
+    /** The locations of the bills, in the order they were issued. */
+    private final List<Long> myLocations = new ArrayList<>();
+
+    /** The sum of the totals of the bills. */
+    private long myRevenue;
+  }
+
+  /**
+   * Creates a store over a directory. The segments are read on first use.
+   *
+   * @param theDirectory the directory of the segment files, created when the first bill is
+   *        added.
+   * @param theSegmentBytes the size at which a segment is closed.
+   */
+  public BillStore(final String theDirectory, final long theSegmentBytes) {
+    this.myDirectory = Paths.get(theDirectory).toAbsolutePath();
+    this.mySegmentBytes = theSegmentBytes;
+  }
+
+  /**
+   * Retrieves the store in the default directory shared by the whole process.
+   *
+   * @return the shared store.
+   */
+  public static BillStore shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * Issues a bill: adds it to the store, issued now.
+   *
+   * @param theBill the bill.
+   * @return the bill as stored.
+   * @throws IOException if a new segment could not be started.
+   * @throws IllegalArgumentException if a bill with the same ID is already stored.
+   */
+  public StoredBill add(final Bill theBill) throws IOException {
+    return add(StoredBill.of(theBill, System.currentTimeMillis()));
+  }
+
+  /**
+   * Issues a bill and waits until it is written. Bills issued together from several threads
+   * still share one write.
+   *
+   * @param theBill the bill.
+   * @return the bill as stored.
+   * @throws IOException if the bill could not be written, in which case it is not in the
+   *         store.
+   * @throws IllegalArgumentException if a bill with the same ID is already stored.
+   */
+  public StoredBill issue(final Bill theBill) throws IOException {
+    final StoredBill stored;
+    final CompletableFuture<Void> written;
+    synchronized (this) {
+      stored = add(theBill);
+      written = myLastAppend;
+    }
+    try {
+      written.join();
+    } catch (final CompletionException e) {
+      synchronized (this) {
+        myStale = true;
+        load();
+      }
+      throw new IOException("Bill " + stored.getBillId() + " was not written", e.getCause());
+    }
+    return stored;
+  }
+
+  /**
+   * Adds an issued bill to the store. The bill is written in the background; see
+   * {@link #flush()}.
+   *
+   * @param theBill the bill.
+   * @return the bill.
+   * @throws IOException if a new segment could not be started.
+   * @throws IllegalArgumentException if a bill with the same ID is already stored.
+   */
+  public synchronized StoredBill add(final StoredBill theBill) throws IOException {
+    load();
+    if (myById.containsKey(theBill.getBillId())) {
+      throw new IllegalArgumentException("Bill " + theBill.getBillId() + " is already stored");
+    }
+    final byte[] record = RecordFormat.billRecord(theBill);
+    if (mySegments.isEmpty()
+        || myActiveSize > RecordFormat.HEADER_SIZE
+           && myActiveSize + record.length > mySegmentBytes) {
+      startSegment();
+    }
+    final int segment = mySegments.size() - 1;
+    final long location = (long) segment << SEGMENT_SHIFT | myActiveSize;
+    myLastAppend = GroupCommitWriter.getInstance().append(mySegments.get(segment).toString(),
+                                                         record);
+    myLastAppend.whenComplete((done, failure) -> {
+      if (failure != null) {
+        myStale = true;
+      }
+    });
+    myActiveSize += record.length;
+    index(theBill, location);
+    return theBill;
+  }
+
+  /**
+   * Waits until every bill added so far is written.
+   *
+   * @return true if every write succeeded.
+   */
+  public boolean flush() {
+    final CompletableFuture<Void> last;
+    synchronized (this) {
+      last = myLastAppend;
+    }
+    try {
+      last.join();
+      return true;
+    } catch (final CompletionException e) {
+      System.err.println("Error writing to file: " + e.getCause().getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Retrieves a bill by ID.
+   *
+   * @param theBillId the bill ID.
+   * @return the bill, or null if no bill has the ID.
+   */
+  public synchronized StoredBill get(final long theBillId) {
+    load();
+    final Long location = myById.get(theBillId);
+    return location == null ? null : read(location);
+  }
+
+  /**
+   * Retrieves every bill of a renter.
+   *
+   * @param theUserName the name of the renter.
+   * @return the bills in the order they were issued, empty if there are none.
+   */
+  public synchronized List<StoredBill> getBills(final String theUserName) {
+    load();
+    return readAll(myByUser.getOrDefault(theUserName, Collections.emptyList()));
+  }
+
+  /**
+   * Retrieves every bill issued in a range of days.
+   *
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   * @return the bills in the order they were issued, empty if there are none.
+   */
+  public synchronized List<StoredBill> getBills(final LocalDate theFrom, final LocalDate theTo) {
+    load();
+    final List<Long> locations = new ArrayList<>();
+    for (Day day : days(theFrom, theTo).values()) {
+      locations.addAll(day.myLocations);
+    }
+    return readAll(locations);
+  }
+
+  /**
+   * Sums the totals of the bills issued in a range of days.
+   *
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   * @return the revenue, in units of {@link PricingEngine}.
+   */
+  public synchronized long getRevenue(final LocalDate theFrom, final LocalDate theTo) {
+    load();
+    long revenue = 0;
+    for (Day day : days(theFrom, theTo).values()) {
+      revenue += day.myRevenue;
+    }
+    return revenue;
+  }
+
+  /**
+   * Retrieves the number of bills in the store.
+   *
+   * @return the number of bills.
+   */
+  public synchronized int size() {
+    load();
+    return myById.size();
+  }
+
+  /**
+   * Retrieves the segment files, for reading the bills in bulk. Bills still being written may
+   * be missing from the last one; call {@link #flush()} first to include them.
+   *
+   * @return the paths of the segments, oldest first.
+   */
+  public synchronized List<Path> getSegments() {
+    load();
+    return new ArrayList<>(mySegments);
+  }
+
+  /**
+   * Retrieves where the bills start in each segment, for splitting the segments into runs of
+   * whole records. Bills still being written may be missing; call {@link #flush()} first to
+   * include them.
+   *
+   * @return the offsets of the bills of every segment in ascending order, in the order of
+   *         {@link #getSegments()}.
+   */
+  public synchronized List<int[]> getBillOffsets() {
+    load();
+    final int[] counts = new int[mySegments.size()];
+    for (long location : myById.values()) {
+      counts[(int) (location >>> SEGMENT_SHIFT)]++;
+    }
+    final List<int[]> offsets = new ArrayList<>();
+    for (int count : counts) {
+      offsets.add(new int[count]);
+    }
+    for (long location : myById.values()) {
+      final int segment = (int) (location >>> SEGMENT_SHIFT);
+      offsets.get(segment)[--counts[segment]] = (int) location;
+    }
+    for (int[] segment : offsets) {
+      Arrays.sort(segment);
+    }
+    return offsets;
+  }
+
+  /**
+   * Lays out the receipt of a bill, as given to the renter.
+   *
+   * @param theBillId the bill ID.
+   * @return the text of the receipt, or null if no bill has the ID.
+   */
+  public String exportReceipt(final long theBillId) {
+    final StoredBill bill = get(theBillId);
+    return bill == null ? null : TextBillRenderer.toText(bill);
+  }
+
+  /**
+   * Writes the receipt of a bill to a text file named after the renter, the time of issue
+   * and the bill ID, as the client bill files used to be.
+   *
+   * @param theBillId the bill ID.
+   * @param theDirectory the directory to write the file to.
+   * @return the path of the file, or null if no bill has the ID.
+   * @throws IOException if the file could not be written.
+   */
+  public Path exportReceipt(final long theBillId, final String theDirectory) throws IOException {
+    final StoredBill bill = get(theBillId);
+    if (bill == null) {
+      return null;
+    }
+    final Path file = Paths.get(theDirectory, bill.getUserName() + "-"
+        + RECEIPT_TIME.format(bill.getIssuedTime()) + "-" + theBillId + ".txt");
+    DurableFiles.replace(file.toString(), TextBillRenderer.toText(bill));
+    return file;
+  }
+
+  /**
+   * Drops the indexes once every queued append is done, so the next load reads them again
+   * from what actually reached the segments.
+   */
+  private void forget() {
+    try {
+      myLastAppend.join();
+    } catch (final CompletionException e) {
+      System.err.println("Error writing to file: " + e.getCause().getMessage());
+    }
+    myStale = false;
+    myLoaded = false;
+    mySegments.clear();
+    myMaps.clear();
+    myActiveSize = 0;
+    myById.clear();
+    myByUser.clear();
+    myByDay.clear();
+  }
+
+  private void startSegment() throws IOException {
+    Files.createDirectories(myDirectory);
+    final Path segment = myDirectory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX,
+                                                           mySegments.size() + 1,
+                                                           SEGMENT_SUFFIX));
+    RecordFormat.ensureHeader(segment.toString(), RecordFormat.Kind.BILLS);
+    mySegments.add(segment);
+    myMaps.add(null);
+    myActiveSize = Files.size(segment);
+  }
+
+  private void index(final StoredBill theBill, final long theLocation) {
+    myById.put(theBill.getBillId(), theLocation);
+    myByUser.computeIfAbsent(theBill.getUserName(), k -> new ArrayList<>()).add(theLocation);
+    final Day day = myByDay.computeIfAbsent(theBill.getIssuedTime().toLocalDate().toEpochDay(),
+                                            k -> new Day());
+    day.myLocations.add(theLocation);
+    day.myRevenue += theBill.getPrice().getTotal();
+  }
+
+  private Map<Long, Day> days(final LocalDate theFrom, final LocalDate theTo) {
+    if (!theFrom.isBefore(theTo)) {
+      return Collections.emptyMap();
+    }
+    return myByDay.subMap(theFrom.toEpochDay(), theTo.toEpochDay());
+  }
+
+  private List<StoredBill> readAll(final List<Long> theLocations) {
+    final List<StoredBill> bills = new ArrayList<>(theLocations.size());
+    for (long location : theLocations) {
+      bills.add(read(location));
+    }
+    return bills;
+  }
+
+  private StoredBill read(final long theLocation) {
+    final int segment = (int) (theLocation >>> SEGMENT_SHIFT);
+    final int offset = (int) theLocation;
+    MappedByteBuffer data = myMaps.get(segment);
+    if (data == null || offset >= data.limit()) {
+      if (segment == mySegments.size() - 1) {
+        try {
+          myLastAppend.join();
+        } catch (final CompletionException e) {
+          throw new UncheckedIOException("Bill was not written",
+                                         new IOException(e.getCause()));
+        }
+      }
+      try {
+        data = RecordFormat.map(mySegments.get(segment).toString());
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      myMaps.set(segment, data);
+    }
+    return RecordFormat.readBill(RecordFormat.fieldsAt(data, offset));
+  }
+
+  private void load() {
+    if (myStale) {
+      forget();
+    }
+    if (myLoaded) {
+      return;
+    }
+    myLoaded = true;
+    if (!Files.isDirectory(myDirectory)) {
+      return;
+    }
+    final List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(myDirectory,
+        SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      files.forEach(segments::add);
+    } catch (final IOException e) {
+      System.err.println("Error reading directory: " + e.getMessage());
+      return;
+    }
+    Collections.sort(segments);
+    for (Path segment : segments) {
+      final int number = mySegments.size();
+      try {
+        RecordFormat.recover(segment.toString());
+        RecordFormat.read(segment.toString(), (offset, fields) -> {
+          if (fields.getTag() == RecordFormat.TAG_BILL) {
+            index(RecordFormat.readBill(fields), (long) number << SEGMENT_SHIFT | offset);
+          }
+        });
+        mySegments.add(segment);
+        myMaps.add(null);
+        myActiveSize = Files.size(segment);
+      } catch (final IOException e) {
+        System.err.println("Error reading file: " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package rentzsystemui;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Formats amounts as US dollars from any thread.
+ *
+ * <p>{@link NumberFormat} is not thread-safe, so each thread keeps its own, created the first
+ * time the thread formats an amount and reused after that.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class CurrencyFormat {
+
+  /** The currency format of each thread. */
+  private static final ThreadLocal<NumberFormat> FORMAT =
+      ThreadLocal.withInitial(() -> NumberFormat.getCurrencyInstance(Locale.US));
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private CurrencyFormat() {
+
+  }
+
+  /**
+   * Formats an amount as dollars and cents, rounding half-even to the cent.
+   *
+   * @param theUnits the amount, in units of {@link PricingEngine}.
+   * @return the amount, such as "$1,234.50".
+   */
+  public static String format(final long theUnits) {
+    return FORMAT.get().format(PricingEngine.toAmount(theUnits));
+  }
+
+  /**
+   * Writes an amount as a plain decimal number of dollars with two decimals, rounding
+   * half-even to the cent, for files read by programs.
+   *
+   * @param theUnits the amount, in units of {@link PricingEngine}.
+   * @return the amount, such as "1234.50".
+   */
+  public static String plain(final long theUnits) {
+    final long cents = PricingEngine.toCents(theUnits);
+    final long whole = Math.abs(cents / 100);
+    final long fraction = Math.abs(cents % 100);
+    return (cents < 0 ? "-" : "") + whole + (fraction < 10 ? ".0" : ".") + fraction;
+  }
+}
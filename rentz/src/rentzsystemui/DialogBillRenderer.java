@@ -0,0 +1,37 @@
+package rentzsystemui;
+
+import javax.swing.JOptionPane;
+
+/**
+ * Shows the cost of a bill to the user in a message dialog.
+ *
+ * @author Ricardo Salas
+ *
+ */
+public class DialogBillRenderer implements BillRenderer {
+
+  @Override
+  public void render(final Bill theBill) {
+    JOptionPane.showMessageDialog(null, toMessage(theBill));
+  }
+
+  /**
+   * Lays out the cost of a bill for the dialog.
+   *
+   * @param theBill the bill.
+   * @return the message.
+   */
+  public static String toMessage(final Bill theBill) {
+    final PriceBreakdown price = theBill.getPrice();
+    return "----Cost Information---- \n"
+        + " Rental per day: "
+        + "\n Cost per day: " + CurrencyFormat.format(price.getDailyRate())
+        + "\n No. of Rental days: " + price.getDays()
+        + "\n Total Amount: " + CurrencyFormat.format(price.getSubtotal())
+        + "\n Insurance: " + CurrencyFormat.format(price.getInsurance())
+        + "\n" + (theBill.isVip() ? "VIPDiscount: -" : "VIPDiscount: ")
+        + CurrencyFormat.format(price.getVipDiscount())
+        + "\n Tax: " + CurrencyFormat.format(price.getTax())
+        + "\n Total Rent: " + CurrencyFormat.format(price.getTotal());
+  }
+}
@@ -0,0 +1,306 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The DurableFiles class provides crash-safe writes for the files Rentz keeps: the binary
+ * {@link RecordFormat} files of users, rentals, reservations and bills, and the few text
+ * files such as the bill ID limit and exported receipts.
+ *
+ * <p>Whole-file rewrites go to a temporary file that is renamed over the original in one
+ * atomic step, so a crash leaves either the old file or the new one and never a truncated mix.
+ * Appends go straight to the end of the file. Both honour the {@link FsyncPolicy} picked for
+ * the deployment with the {@code rentz.fsync} system property.</p>
+ *
+ * <p>{@link #discardTemp(String)} removes the temporary file a crash left behind. Record files
+ * are repaired by {@link RecordFormat#recover(String)}, which cuts off a torn record.
+ * {@link #recover(String, Predicate)} is the line-based repair, used only when a legacy text
+ * user file is read: it also cuts off a final line that was only partly written.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class DurableFiles {
+
+  /** System property that selects the fsync policy: always, batched or never. */
+  public static final String POLICY_PROPERTY = "rentz.fsync";
+
+  /** Number of appends to one file that the batched policy lets through between fsyncs. */
+  public static final int BATCH_SIZE = 32;
+
+  /** Suffix of the temporary file a rewrite goes to before it is renamed. */
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /** Record terminator. */
+  private static final byte NEW_LINE = '\n';
+
+  /** The fsync policy of this deployment. */
+  private static final FsyncPolicy POLICY =
+      FsyncPolicy.fromName(System.getProperty(POLICY_PROPERTY));
+
+  /** Appends made to each file since it was last forced to disk under the batched policy. */
+  private static final Map<Path, Integer> UNSYNCED_APPENDS = new HashMap<>();
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private DurableFiles() {
+
+  }
+
+  /**
+   * How often written data is forced from the operating system's cache to the disk.
+   */
+  public enum FsyncPolicy {
+    /** Every append and every rewrite is forced to disk before returning. */
+    ALWAYS,
+
+    /** Rewrites are forced to disk, appends once every {@link DurableFiles#BATCH_SIZE}. */
+    BATCHED,
+
+    /** Nothing is forced, the operating system decides when data reaches the disk. */
+    NEVER;
+
+    /**
+     * Looks up a policy by name, ignoring case.
+     *
+     * @param theName the name of the policy, may be null.
+     * @return the named policy, or BATCHED if the name is missing or unknown.
+     */
+    public static FsyncPolicy fromName(final String theName) {
+      if (theName != null) {
+        for (FsyncPolicy policy : values()) {
+          if (policy.name().equals(theName.trim().toUpperCase(Locale.ROOT))) {
+            return policy;
+          }
+        }
+      }
+      return BATCHED;
+    }
+  }
+
+  /**
+   * Retrieves the fsync policy of this deployment.
+   *
+   * @return the policy picked with the rentz.fsync system property.
+   */
+  public static FsyncPolicy getPolicy() {
+    return POLICY;
+  }
+
+  /**
+   * Replaces the content of a file atomically using the deployment's policy.
+   *
+   * @param theFile the file to replace.
+   * @param theContent the new content of the file.
+   * @throws IOException if the content could not be written or renamed into place.
+   */
+  public static void replace(final String theFile, final String theContent) throws IOException {
+    replace(theFile, theContent, POLICY);
+  }
+
+  /**
+   * Replaces the content of a file atomically. The content is written to a temporary file
+   * next to it which is then renamed over the original.
+   *
+   * @param theFile the file to replace.
+   * @param theContent the new content of the file.
+   * @param thePolicy when to force the data to disk.
+   * @throws IOException if the content could not be written or renamed into place.
+   */
+  public static void replace(final String theFile, final String theContent,
+                             final FsyncPolicy thePolicy) throws IOException {
+    replace(theFile, theContent.getBytes(StandardCharsets.UTF_8), thePolicy);
+  }
+
+  /**
+   * Replaces the content of a file atomically with raw bytes. The content is written to a
+   * temporary file next to it which is then renamed over the original.
+   *
+   * @param theFile the file to replace.
+   * @param theContent the new content of the file.
+   * @param thePolicy when to force the data to disk.
+   * @throws IOException if the content could not be written or renamed into place.
+   */
+  public static void replace(final String theFile, final byte[] theContent,
+                             final FsyncPolicy thePolicy) throws IOException {
+    final Path target = Paths.get(theFile).toAbsolutePath();
+    final Path temp = Paths.get(theFile + TEMP_SUFFIX).toAbsolutePath();
+
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(out, ByteBuffer.wrap(theContent));
+      if (thePolicy != FsyncPolicy.NEVER) {
+        out.force(true);
+      }
+    }
+    try {
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                 StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    if (thePolicy == FsyncPolicy.ALWAYS) {
+      forceDirectory(target.getParent());
+    }
+    synchronized (UNSYNCED_APPENDS) {
+      UNSYNCED_APPENDS.remove(target);
+    }
+  }
+
+  /**
+   * Appends a record to the end of a file using the deployment's policy.
+   *
+   * @param theFile the file to append to, created if missing.
+   * @param theRecord the record, including its line terminator.
+   * @throws IOException if the record could not be written.
+   */
+  public static void append(final String theFile, final String theRecord) throws IOException {
+    append(theFile, theRecord, POLICY);
+  }
+
+  /**
+   * Appends a record to the end of a file.
+   *
+   * @param theFile the file to append to, created if missing.
+   * @param theRecord the record, including its line terminator.
+   * @param thePolicy when to force the data to disk.
+   * @throws IOException if the record could not be written.
+   */
+  public static void append(final String theFile, final String theRecord,
+                            final FsyncPolicy thePolicy) throws IOException {
+    append(theFile, theRecord.getBytes(StandardCharsets.UTF_8), thePolicy);
+  }
+
+  /**
+   * Appends raw bytes to the end of a file.
+   *
+   * @param theFile the file to append to, created if missing.
+   * @param theRecord the encoded record.
+   * @param thePolicy when to force the data to disk.
+   * @throws IOException if the record could not be written.
+   */
+  public static void append(final String theFile, final byte[] theRecord,
+                            final FsyncPolicy thePolicy) throws IOException {
+    final Path target = Paths.get(theFile).toAbsolutePath();
+    try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      writeFully(out, ByteBuffer.wrap(theRecord));
+      if (shouldForceAppend(target, thePolicy)) {
+        out.force(false);
+      }
+    }
+  }
+
+  private static boolean shouldForceAppend(final Path theTarget, final FsyncPolicy thePolicy) {
+    if (thePolicy == FsyncPolicy.ALWAYS) {
+      return true;
+    }
+    if (thePolicy == FsyncPolicy.NEVER) {
+      return false;
+    }
+    synchronized (UNSYNCED_APPENDS) {
+      final int unsynced = UNSYNCED_APPENDS.getOrDefault(theTarget, 0) + 1;
+      if (unsynced >= BATCH_SIZE) {
+        UNSYNCED_APPENDS.remove(theTarget);
+        return true;
+      }
+      UNSYNCED_APPENDS.put(theTarget, unsynced);
+      return false;
+    }
+  }
+
+  /**
+   * Repairs a line-based file after a crash. A temporary file left behind by an interrupted
+   * {@link #replace} is deleted, since the original was never touched. A final line without
+   * its terminator is kept and terminated if the check accepts it as a whole record, and cut
+   * off otherwise.
+   *
+   * @param theFile the file to repair.
+   * @param theIsCompleteRecord accepts an unterminated final line that is still a full record.
+   * @return true if the file had to be repaired.
+   * @throws IOException if the file could not be read or repaired.
+   */
+  public static boolean recover(final String theFile,
+                                final Predicate<String> theIsCompleteRecord)
+      throws IOException {
+    boolean repaired = discardTemp(theFile);
+
+    final Path target = Paths.get(theFile).toAbsolutePath();
+    if (!Files.exists(target)) {
+      return repaired;
+    }
+    try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      final long size = channel.size();
+      long tailStart = size;
+      final ByteBuffer one = ByteBuffer.allocate(1);
+      while (tailStart > 0) {
+        one.clear();
+        channel.read(one, tailStart - 1);
+        if (one.get(0) == NEW_LINE) {
+          break;
+        }
+        tailStart--;
+      }
+      if (tailStart == size) {
+        return repaired;
+      }
+      final ByteBuffer tail = ByteBuffer.allocate((int) (size - tailStart));
+      while (tail.hasRemaining() && channel.read(tail, tailStart + tail.position()) > 0) {
+        continue;
+      }
+      final String lastLine = new String(tail.array(), StandardCharsets.UTF_8);
+      if (lastLine.indexOf('\0') < 0 && theIsCompleteRecord.test(lastLine)) {
+        channel.write(ByteBuffer.wrap(new byte[] {NEW_LINE}), size);
+      } else {
+        System.err.println("Discarding torn record at the end of " + theFile);
+        channel.truncate(tailStart);
+      }
+      channel.force(true);
+      return true;
+    }
+  }
+
+  /**
+   * Deletes the temporary file an interrupted {@link #replace} left next to a file. The
+   * original was never touched, so nothing is lost.
+   *
+   * @param theFile the file that was being replaced.
+   * @return true if a temporary file was deleted.
+   * @throws IOException if the temporary file could not be deleted.
+   */
+  public static boolean discardTemp(final String theFile) throws IOException {
+    return Files.deleteIfExists(Paths.get(theFile + TEMP_SUFFIX).toAbsolutePath());
+  }
+
+  private static void writeFully(final FileChannel theOut, final ByteBuffer theBytes)
+      throws IOException {
+    while (theBytes.hasRemaining()) {
+      theOut.write(theBytes);
+    }
+  }
+
+  private static void forceDirectory(final Path theDirectory) {
+    if (theDirectory == null) {
+      return;
+    }
+    try (FileChannel dir = FileChannel.open(theDirectory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (final IOException e) {
+      // Not every platform lets a directory be opened, the rename itself is still atomic.
+    }
+  }
+}
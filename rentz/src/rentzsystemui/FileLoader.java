@@ -1,14 +1,10 @@
 package rentzsystemui;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * The FileLoader class provides utility methods for reading and writing
@@ -18,6 +14,11 @@ import java.util.Map;
  * store it in a map. as well as methods to write user information and rental
  * details to a file. </p>
  *
+ * <p>Users and rentals are written as binary records, see {@link RecordFormat}. The user
+ * file may still be in the old 'name,password,vip' text format, which is read as before.
+ * Before the user file is read, a record left half written by a crash is repaired or
+ * cut off.</p>
+ *
  * @author Ricardo Salas
  */
 public final class FileLoader {
@@ -35,7 +36,9 @@ public final class FileLoader {
   }
 
   /**
-   * Reads item information from a file and returns a List of Item objects.
+   * Reads item information from a file and returns a List of Item objects. A record file is
+   * read record by record; a text file is streamed through a {@link UserFileParser}, with
+   * malformed lines reported and skipped.
    *
    * @param theFile the name of the file to load into a List of Items
    * @return a List of Item objects created from data in an input file
@@ -44,43 +47,73 @@ public final class FileLoader {
 
     final Map<String, User> userList = new HashMap<String, User>();
 
-    final File filePath = Paths.get(theFile).toAbsolutePath().toFile();
-    try (BufferedReader in = new BufferedReader(new FileReader(filePath))) { // Java 7!
-      String line;
-      while ((line = in.readLine()) != null) {
-        final String[] tokens = line.split(SPLIT_TOKEN);
-        final String uName = tokens[0];
-        final String uPwd = tokens[1];
-        final boolean isVip = Boolean.parseBoolean(tokens[2]);
-        final User u = new User(uName, uPwd, isVip);
-        userList.put(uName, u);
+    if (RecordFormat.isRecordFile(theFile)) {
+      try {
+        RecordFormat.recover(theFile);
+        RecordFormat.read(theFile, (offset, fields) -> {
+          if (fields.getTag() == RecordFormat.TAG_USER) {
+            final User user =
+                new User(fields.readString(), fields.readString(), fields.readBoolean());
+            userList.put(user.getMyName(), user);
+          }
+        });
+      } catch (final IOException e) {
+        e.printStackTrace();
       }
-      in.close();
+      return userList;
+    }
+
+    try {
+      DurableFiles.recover(theFile, FileLoader::isUserRecord);
     } catch (final IOException e) {
       e.printStackTrace();
-    } // no finally block needed to close 'input' with the Java 7 try with resource block
+    }
+
+    try {
+      new UserFileParser().parse(theFile, user -> userList.put(user.getMyName(), user),
+          (lineNumber, reason) -> System.err.println("Skipping line " + lineNumber + " of "
+                                                     + theFile + ": " + reason));
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
 
     return userList;
   }
 
   /**
-   * Writes information of the user to the file.
+   * Checks whether a line is a complete 'name,password,vip' user record.
+   *
+   * @param theLine the line to check.
+   * @return true if the line holds all three fields and a valid VIP flag.
+   */
+  static boolean isUserRecord(final String theLine) {
+    final String[] tokens = theLine.split(SPLIT_TOKEN);
+    return tokens.length == 3
+           && ("true".equals(tokens[2]) || "false".equals(tokens[2]));
+  }
+
+  /**
+   * Writes information of the user to the file. The record is handed to the
+   * {@link GroupCommitWriter} and this method waits until it is durable.
    *
    * @param theFile the name of the file to load into a List of Items
    * @param theUser the user details to write to file
+   * @return true if the user is on file, false if the write failed and was reported.
    */
-  public static void writeUserToFile(final String theFile, final User theUser) {
-
-    try (BufferedWriter out = new BufferedWriter(new FileWriter(theFile, true))) {
-      final StringBuffer line = new StringBuffer();
-      line.append(theUser.getMyName() + SPLIT_TOKEN);
-      line.append(theUser.getMyPassword() + SPLIT_TOKEN);
-      line.append(theUser.getMyVipStatus());
-      line.append("\n");
-      out.write(line.toString());
-    } catch (final IOException e) {
-      e.printStackTrace();
-    } 
+  public static boolean writeUserToFile(final String theFile, final User theUser) {
+    return awaitRecord(writeUserToFileAsync(theFile, theUser));
+  }
+
+  /**
+   * Queues information of the user to be written to the file with the next group commit.
+   *
+   * @param theFile the name of the file to load into a List of Items
+   * @param theUser the user details to write to file
+   * @return a future that completes once the record is durable.
+   */
+  public static CompletableFuture<Void> writeUserToFileAsync(final String theFile,
+                                                             final User theUser) {
+    return appendRecord(theFile, RecordFormat.Kind.USERS, RecordFormat.userRecord(theUser));
   }
   
   /**
@@ -89,20 +122,53 @@ public final class FileLoader {
    * @param theFile the name of the file to load into a List of Items
    * @param theUser the user details to write to file.
    * @param theRentalName the name of the rented vehicle.
+   * @return true if the rental is on file, false if the write failed and was reported.
    */
-  public static void writeRentalToFile(final String theFile,
-                                       final User theUser, String theRentalName) {
+  public static boolean writeRentalToFile(final String theFile,
+                                          final User theUser, String theRentalName) {
+    return awaitRecord(writeRentalToFileAsync(theFile, theUser, theRentalName));
+  }
 
-    try (BufferedWriter out = new BufferedWriter(new FileWriter(theFile, true))) {
+  /**
+   * Queues the User with their proper rental to be written with the next group commit.
+   *
+   * @param theFile the name of the file to load into a List of Items
+   * @param theUser the user details to write to file.
+   * @param theRentalName the name of the rented vehicle.
+   * @return a future that completes once the record is durable.
+   */
+  public static CompletableFuture<Void> writeRentalToFileAsync(final String theFile,
+                                                               final User theUser,
+                                                               final String theRentalName) {
+    return appendRecord(theFile, RecordFormat.Kind.JOURNAL,
+        RecordFormat.changeRecord(RecordFormat.TAG_RENT, theUser.getMyName(), theRentalName));
+  }
 
-      final StringBuffer line = new StringBuffer();
-      line.append(theUser.getMyName() + SPLIT_TOKEN);
-      line.append(theRentalName);
-      out.write(line.toString());
+  private static CompletableFuture<Void> appendRecord(final String theFile,
+                                                      final RecordFormat.Kind theKind,
+                                                      final byte[] theRecord) {
+    try {
+      RecordFormat.ensureHeader(theFile, theKind);
+      if (!RecordFormat.isRecordFile(theFile)) {
+        throw new IOException(theFile + " is still in the text format, convert it with "
+                              + RecordFileTool.class.getSimpleName());
+      }
     } catch (final IOException e) {
-      e.printStackTrace();
+      final CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
     }
+    return GroupCommitWriter.getInstance().append(theFile, theRecord);
   }
 
-}
+  private static boolean awaitRecord(final CompletableFuture<Void> theRecord) {
+    try {
+      theRecord.join();
+      return true;
+    } catch (final CompletionException e) {
+      e.getCause().printStackTrace();
+      return false;
+    }
+  }
 
+}
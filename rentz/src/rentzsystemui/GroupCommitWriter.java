@@ -0,0 +1,198 @@
+package rentzsystemui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A background writer that commits appended records in groups.
+ *
+ * <p>Callers queue a record for a file and get back a future. A single daemon thread takes
+ * everything queued during one commit interval, joins the records for each file into one
+ * write, forces that file to disk once if the {@link DurableFiles.FsyncPolicy} asks for it,
+ * and then completes the futures. During bulk sign-ups or busy counter hours this turns one
+ * open, write and close per record into one per file per interval.</p>
+ *
+ * <p>Records for the same file are written in the order they were queued. A future that
+ * completes normally means its record has been written and, unless the policy is NEVER,
+ * forced to disk. A shutdown hook waits for anything still queued when the process
+ * exits.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class GroupCommitWriter {
+
+  /** System property that sets the commit interval in milliseconds. */
+  public static final String INTERVAL_PROPERTY = "rentz.groupcommit.ms";
+
+  /** Commit interval used when the property is not set. */
+  private static final long DEFAULT_INTERVAL_MILLIS = 10;
+
+  /** The writer shared by the whole process. */
+  private static final GroupCommitWriter INSTANCE =
+      new GroupCommitWriter(Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS),
+                            DurableFiles.getPolicy());
+
+  /** Records waiting to be committed. */
+  private final BlockingQueue<PendingRecord> myQueue = new LinkedBlockingQueue<>();
+
+  /** Records queued or being committed whose futures have not completed yet. */
+  private final AtomicInteger myUncommitted = new AtomicInteger();
+
+  /** How long one group collects records, in nanoseconds. */
+  private final long myIntervalNanos;
+
+  /** Whether a committed group is forced to disk. */
+  private final DurableFiles.FsyncPolicy myPolicy;
+
+  /**
+   * A record waiting for its group to be committed.
+   */
+  private static final class PendingRecord {
+
+    /** The file the record goes to. */
+    private final String myFile;
+
+    /** The encoded record. */
+    private final byte[] myRecord;
+
+    /** Completed once the record is durable. */
+    private final CompletableFuture<Void> myDone = new CompletableFuture<>();
+
+    private PendingRecord(final String theFile, final byte[] theRecord) {
+      this.myFile = theFile;
+      this.myRecord = theRecord;
+    }
+  }
+
+  /**
+   * Creates a writer and starts its commit thread.
+   *
+   * @param theIntervalMillis how long one group collects records.
+   * @param thePolicy whether a committed group is forced to disk.
+   */
+  private GroupCommitWriter(final long theIntervalMillis,
+                            final DurableFiles.FsyncPolicy thePolicy) {
+    this.myIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, theIntervalMillis));
+    this.myPolicy = thePolicy;
+
+    final Thread committer = new Thread(this::run, "rentz-group-commit");
+    committer.setDaemon(true);
+    committer.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "rentz-group-commit-drain"));
+  }
+
+  /**
+   * Retrieves the writer shared by the whole process.
+   *
+   * @return the group commit writer.
+   */
+  public static GroupCommitWriter getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Queues a record to be appended to a file.
+   *
+   * @param theFile the file to append to, created if missing.
+   * @param theRecord the record, including its line terminator.
+   * @return a future that completes once the record is durable, or exceptionally if the
+   *         write failed.
+   */
+  public CompletableFuture<Void> append(final String theFile, final String theRecord) {
+    return append(theFile, theRecord.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Queues an encoded record to be appended to a file.
+   *
+   * @param theFile the file to append to, created if missing.
+   * @param theRecord the encoded record, see {@link RecordFormat}.
+   * @return a future that completes once the record is durable, or exceptionally if the
+   *         write failed.
+   */
+  public CompletableFuture<Void> append(final String theFile, final byte[] theRecord) {
+    final PendingRecord pending = new PendingRecord(theFile, theRecord);
+    myUncommitted.incrementAndGet();
+    myQueue.add(pending);
+    return pending.myDone;
+  }
+
+  private void run() {
+    final List<PendingRecord> group = new ArrayList<>();
+    while (true) {
+      try {
+        group.add(myQueue.take());
+        final long deadline = System.nanoTime() + myIntervalNanos;
+        long remaining = myIntervalNanos;
+        while (remaining > 0) {
+          final PendingRecord next = myQueue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          group.add(next);
+          remaining = deadline - System.nanoTime();
+        }
+        myQueue.drainTo(group);
+        commit(group);
+        group.clear();
+      } catch (final InterruptedException e) {
+        commit(group);
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Waits for the commit thread to write everything still queued, so records are not lost
+   * when the process exits. The commit thread keeps running while shutdown hooks do, and
+   * leaving the work to it keeps the records of each file in order.
+   */
+  private void drain() {
+    final long deadline = System.nanoTime() + myIntervalNanos + TimeUnit.SECONDS.toNanos(1);
+    while (myUncommitted.get() > 0 && System.nanoTime() < deadline) {
+      Thread.yield();
+    }
+  }
+
+  private void commit(final List<PendingRecord> theGroup) {
+    final Map<String, List<PendingRecord>> byFile = new LinkedHashMap<>();
+    for (PendingRecord pending : theGroup) {
+      byFile.computeIfAbsent(pending.myFile, k -> new ArrayList<>()).add(pending);
+    }
+    final DurableFiles.FsyncPolicy groupPolicy = myPolicy == DurableFiles.FsyncPolicy.NEVER
+        ? DurableFiles.FsyncPolicy.NEVER : DurableFiles.FsyncPolicy.ALWAYS;
+
+    for (Map.Entry<String, List<PendingRecord>> entry : byFile.entrySet()) {
+      final ByteArrayOutputStream records = new ByteArrayOutputStream();
+      for (PendingRecord pending : entry.getValue()) {
+        records.write(pending.myRecord, 0, pending.myRecord.length);
+      }
+      try {
+        DurableFiles.append(entry.getKey(), records.toByteArray(), groupPolicy);
+        for (PendingRecord pending : entry.getValue()) {
+          myUncommitted.decrementAndGet();
+          pending.myDone.complete(null);
+        }
+      } catch (final IOException | RuntimeException e) {
+        // Any failure only fails the records of this file, so the commit thread keeps going
+        // and every future completes.
+        System.err.println("Error writing to file: " + e.getMessage());
+        for (PendingRecord pending : entry.getValue()) {
+          myUncommitted.decrementAndGet();
+          pending.myDone.completeExceptionally(e);
+        }
+      }
+    }
+  }
+}
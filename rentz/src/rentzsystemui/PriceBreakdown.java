@@ -0,0 +1,147 @@
+package rentzsystemui;
+
+/**
+ * The priced lines of a bill, as worked out by {@link PricingEngine}.
+ *
+ * <p>Every amount is a whole number of units of 10^-{@value PricingEngine#SCALE} dollars, see
+ * {@link PricingEngine#toAmount(long)} to turn one back into dollars. Instances never change.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class PriceBreakdown {
+
+  /** The daily rate of the vehicle. */
+  private final long myDailyRate;
+
+  /** The number of rental days. */
+  private final int myDays;
+
+  /** The daily rate times the number of days. */
+  private final long mySubtotal;
+
+  /** The insurance charged on the subtotal. */
+  private final long myInsurance;
+
+  /** The VIP discount taken off, zero for other users. */
+  private final long myVipDiscount;
+
+  /** The tax charged on the subtotal. */
+  private final long myTax;
+
+  /** The amount to pay. */
+  private final long myTotal;
+
+  /**
+   * Creates a breakdown.
+   *
+   * @param theDailyRate the daily rate of the vehicle.
+   * @param theDays the number of rental days.
+   * @param theSubtotal the daily rate times the number of days.
+   * @param theInsurance the insurance charged.
+   * @param theVipDiscount the VIP discount taken off.
+   * @param theTax the tax charged.
+   * @param theTotal the amount to pay.
+   */
+  PriceBreakdown(final long theDailyRate, final int theDays, final long theSubtotal,
+                 final long theInsurance, final long theVipDiscount, final long theTax,
+                 final long theTotal) {
+    this.myDailyRate = theDailyRate;
+    this.myDays = theDays;
+    this.mySubtotal = theSubtotal;
+    this.myInsurance = theInsurance;
+    this.myVipDiscount = theVipDiscount;
+    this.myTax = theTax;
+    this.myTotal = theTotal;
+  }
+
+  /**
+   * Retrieves the daily rate of the vehicle.
+   *
+   * @return the daily rate.
+   */
+  public long getDailyRate() {
+    return myDailyRate;
+  }
+
+  /**
+   * Retrieves the number of rental days.
+   *
+   * @return the number of days.
+   */
+  public int getDays() {
+    return myDays;
+  }
+
+  /**
+   * Retrieves the daily rate times the number of days.
+   *
+   * @return the subtotal.
+   */
+  public long getSubtotal() {
+    return mySubtotal;
+  }
+
+  /**
+   * Retrieves the insurance charged on the subtotal.
+   *
+   * @return the insurance.
+   */
+  public long getInsurance() {
+    return myInsurance;
+  }
+
+  /**
+   * Retrieves the VIP discount taken off the bill.
+   *
+   * @return the discount, zero for users without VIP status.
+   */
+  public long getVipDiscount() {
+    return myVipDiscount;
+  }
+
+  /**
+   * Retrieves the tax charged on the subtotal.
+   *
+   * @return the tax.
+   */
+  public long getTax() {
+    return myTax;
+  }
+
+  /**
+   * Retrieves the amount to pay: the subtotal plus insurance and tax, less the VIP discount.
+   *
+   * @return the total.
+   */
+  public long getTotal() {
+    return myTotal;
+  }
+
+  @Override
+  public boolean equals(final Object theOther) {
+    if (this == theOther) {
+      return true;
+    }
+    if (!(theOther instanceof PriceBreakdown)) {
+      return false;
+    }
+    final PriceBreakdown other = (PriceBreakdown) theOther;
+    return myDailyRate == other.myDailyRate && myDays == other.myDays
+           && mySubtotal == other.mySubtotal && myInsurance == other.myInsurance
+           && myVipDiscount == other.myVipDiscount && myTax == other.myTax
+           && myTotal == other.myTotal;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(myTotal) * 31 + myDays;
+  }
+
+  @Override
+  public String toString() {
+    return "PriceBreakdown[rate=" + myDailyRate + ", days=" + myDays + ", subtotal="
+           + mySubtotal + ", insurance=" + myInsurance + ", vip=" + myVipDiscount + ", tax="
+           + myTax + ", total=" + myTotal + "]";
+  }
+}
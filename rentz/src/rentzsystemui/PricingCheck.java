@@ -0,0 +1,134 @@
+package rentzsystemui;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * Checks that {@link PricingEngine} prices every rental exactly as the {@link BigDecimal}
+ * arithmetic bills used before it.
+ *
+ * <p>The check prices random rentals both ways and compares them line by line: a daily rate
+ * in whole cents, as the {@link vehicles.FareTable} takes them, a number of days and whether
+ * the VIP discount is taken off. The BigDecimal side is the formula of the old bill: the
+ * subtotal is the rate times the days, insurance and the VIP discount are the subtotal times
+ * 0.01 and tax is the subtotal times 0.1. The first mismatches are printed and the exit status
+ * is 1 if there was any.</p>
+ *
+ * <p>Usage:</p>
+ * <pre>
+ *   PricingCheck [rentals [seed]]
+ * </pre>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class PricingCheck {
+
+  /** Number of rentals priced when none is given. */
+  private static final int DEFAULT_RENTALS = 1_000_000;
+
+  /** Highest daily rate tried, in cents. */
+  private static final int MAX_RATE_CENTS = 10_000_000;
+
+  /** Longest rental tried, in days. */
+  private static final int MAX_DAYS = 3650;
+
+  /** Most mismatches printed. */
+  private static final int MAX_REPORTED = 10;
+
+  /** One percent, as the old bill wrote it. */
+  private static final BigDecimal ONE_PERCENT = new BigDecimal("0.01");
+
+  /** The tax rate, as the old bill wrote it. */
+  private static final BigDecimal TAX_RATE = new BigDecimal("0.1");
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private PricingCheck() {
+
+  }
+
+  /**
+   * Prices random rentals both ways and reports the mismatches.
+   *
+   * @param theArgs the number of rentals and the seed of the random rentals, both optional.
+   */
+  public static void main(final String[] theArgs) {
+    final int rentals = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : DEFAULT_RENTALS;
+    final long seed = theArgs.length > 1 ? Long.parseLong(theArgs[1]) : System.nanoTime();
+    final long mismatches = check(rentals, new Random(seed));
+    System.out.println(rentals + " rentals with seed " + seed + ": " + mismatches
+                       + " mismatches");
+    if (mismatches > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Prices random rentals both ways.
+   *
+   * @param theRentals the number of rentals.
+   * @param theRandom the source of the rentals.
+   * @return the number of rentals priced differently.
+   */
+  static long check(final int theRentals, final Random theRandom) {
+    long mismatches = 0;
+    for (int i = 0; i < theRentals; i++) {
+      final long cents = theRandom.nextInt(MAX_RATE_CENTS + 1);
+      final int days = 1 + theRandom.nextInt(MAX_DAYS);
+      final boolean vip = theRandom.nextBoolean();
+      final String mismatch = compare(cents, days, vip);
+      if (mismatch != null) {
+        if (++mismatches <= MAX_REPORTED) {
+          System.err.println(cents + " cents for " + days + " days, vip " + vip + ": "
+                             + mismatch);
+        }
+      }
+    }
+    return mismatches;
+  }
+
+  /**
+   * Prices one rental both ways.
+   *
+   * @param theCents the daily rate, in cents.
+   * @param theDays the number of days.
+   * @param theVip whether the VIP discount is taken off.
+   * @return the first line that differs, or null if the prices are the same.
+   */
+  static String compare(final long theCents, final int theDays, final boolean theVip) {
+    final BigDecimal rate = BigDecimal.valueOf(theCents, 2);
+    final BigDecimal subtotal = rate.multiply(new BigDecimal(theDays));
+    final BigDecimal insurance = subtotal.multiply(ONE_PERCENT);
+    final BigDecimal discount = theVip ? subtotal.multiply(ONE_PERCENT) : BigDecimal.ZERO;
+    final BigDecimal tax = subtotal.multiply(TAX_RATE);
+    final BigDecimal total = subtotal.add(insurance).subtract(discount).add(tax);
+
+    final PriceBreakdown price =
+        PricingEngine.price(theCents * PricingEngine.UNITS_PER_CENT, theDays, theVip);
+    if (differs(price.getDailyRate(), rate)) {
+      return "daily rate " + PricingEngine.toAmount(price.getDailyRate()) + " != " + rate;
+    }
+    if (differs(price.getSubtotal(), subtotal)) {
+      return "subtotal " + PricingEngine.toAmount(price.getSubtotal()) + " != " + subtotal;
+    }
+    if (differs(price.getInsurance(), insurance)) {
+      return "insurance " + PricingEngine.toAmount(price.getInsurance()) + " != " + insurance;
+    }
+    if (differs(price.getVipDiscount(), discount)) {
+      return "discount " + PricingEngine.toAmount(price.getVipDiscount()) + " != " + discount;
+    }
+    if (differs(price.getTax(), tax)) {
+      return "tax " + PricingEngine.toAmount(price.getTax()) + " != " + tax;
+    }
+    if (differs(price.getTotal(), total)) {
+      return "total " + PricingEngine.toAmount(price.getTotal()) + " != " + total;
+    }
+    return null;
+  }
+
+  private static boolean differs(final long theUnits, final BigDecimal theAmount) {
+    return PricingEngine.toAmount(theUnits).compareTo(theAmount) != 0;
+  }
+}
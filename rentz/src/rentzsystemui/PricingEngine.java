@@ -0,0 +1,113 @@
+package rentzsystemui;
+
+import java.math.BigDecimal;
+import vehicles.AbstractVehicle;
+
+/**
+ * Works out what a rental costs, in whole numbers of minor units instead of {@link BigDecimal}.
+ *
+ * <p>Amounts are longs counting units of 10^-{@value #SCALE} dollars, the scale the vehicles
+ * give their daily rate in. The insurance, VIP discount and tax are percentages of the
+ * subtotal. The {@link vehicles.FareTable} only takes fares in whole cents, so with two more
+ * decimals every percentage comes out to a whole unit and the breakdown equals the exact
+ * decimal one; a rate given here in finer units would have its percentages rounded half-even.
+ * Amounts are rounded to cents, half-even as well, only when they are shown or stored as
+ * cents, so the total is the exact sum of its parts. Pricing a rental allocates nothing but
+ * the breakdown it returns.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class PricingEngine {
+
+  /** Number of decimal places of an amount. */
+  public static final int SCALE = AbstractVehicle.RATE_SCALE;
+
+  /** Number of units in a cent. */
+  public static final long UNITS_PER_CENT = 100;
+
+  /** Insurance charged, in percent of the subtotal. */
+  public static final int INSURANCE_PERCENT = 1;
+
+  /** Discount given to VIP users, in percent of the subtotal. */
+  public static final int VIP_DISCOUNT_PERCENT = 1;
+
+  /** Tax charged, in percent of the subtotal. */
+  public static final int TAX_PERCENT = 10;
+
+  /** The whole of a percentage. */
+  private static final long HUNDRED_PERCENT = 100;
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private PricingEngine() {
+
+  }
+
+  /**
+   * Prices the rental of a vehicle.
+   *
+   * @param theVehicle the vehicle.
+   * @param theDays the number of rental days.
+   * @param theVip whether the user gets the VIP discount.
+   * @return the priced lines of the bill.
+   */
+  public static PriceBreakdown price(final AbstractVehicle theVehicle, final int theDays,
+                                     final boolean theVip) {
+    return price(theVehicle.getDailyRateUnits(), theDays, theVip);
+  }
+
+  /**
+   * Prices a rental.
+   *
+   * @param theDailyRate the daily rate, in units.
+   * @param theDays the number of rental days.
+   * @param theVip whether the user gets the VIP discount.
+   * @return the priced lines of the bill.
+   * @throws ArithmeticException if an amount does not fit in a long.
+   */
+  public static PriceBreakdown price(final long theDailyRate, final int theDays,
+                                     final boolean theVip) {
+    final long subtotal = Math.multiplyExact(theDailyRate, theDays);
+    final long insurance = percentOf(subtotal, INSURANCE_PERCENT);
+    final long discount = theVip ? percentOf(subtotal, VIP_DISCOUNT_PERCENT) : 0;
+    final long tax = percentOf(subtotal, TAX_PERCENT);
+    final long total = Math.addExact(Math.subtractExact(Math.addExact(subtotal, insurance),
+                                                        discount), tax);
+    return new PriceBreakdown(theDailyRate, theDays, subtotal, insurance, discount, tax, total);
+  }
+
+  /**
+   * Rounds an amount to whole cents, half-even.
+   *
+   * @param theUnits the amount, in units.
+   * @return the amount in cents.
+   */
+  public static long toCents(final long theUnits) {
+    return divideHalfEven(theUnits, UNITS_PER_CENT);
+  }
+
+  /**
+   * Turns an amount back into dollars, for display.
+   *
+   * @param theUnits the amount, in units.
+   * @return the amount in dollars, exactly.
+   */
+  public static BigDecimal toAmount(final long theUnits) {
+    return BigDecimal.valueOf(theUnits, SCALE);
+  }
+
+  private static long percentOf(final long theAmount, final int thePercent) {
+    return divideHalfEven(Math.multiplyExact(theAmount, thePercent), HUNDRED_PERCENT);
+  }
+
+  private static long divideHalfEven(final long theDividend, final long theDivisor) {
+    final long quotient = Math.floorDiv(theDividend, theDivisor);
+    final long twiceRemainder = 2 * Math.floorMod(theDividend, theDivisor);
+    if (twiceRemainder > theDivisor || twiceRemainder == theDivisor && (quotient & 1) != 0) {
+      return quotient + 1;
+    }
+    return quotient;
+  }
+}
@@ -0,0 +1,133 @@
+package rentzsystemui;
+
+/**
+ * The prices of renting each of a set of vehicles for each of a list of day counts, as
+ * returned by {@link QuoteService}.
+ *
+ * <p>Rows stand for the vehicles and columns for the day counts, in the order they were asked
+ * for. The totals are kept in one array, row after row, in units of
+ * 10^-{@value PricingEngine#SCALE} dollars. A vehicle that is not in the fleet has a row that
+ * is not quoted. Instances never change.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class QuoteMatrix {
+
+  /** The daily rate of a row whose vehicle is not in the fleet. */
+  public static final long NOT_QUOTED = -1;
+
+  /** The unit numbers of the rows. */
+  private final int[] myUnits;
+
+  /** The day counts of the columns. */
+  private final int[] myDays;
+
+  /** Whether the VIP discount was taken off. */
+  private final boolean myVip;
+
+  /** The daily rate of each row, or {@link #NOT_QUOTED}. */
+  private final long[] myDailyRates;
+
+  /** The total of each cell, row after row. */
+  private final long[] myTotals;
+
+  /**
+   * Creates a matrix over arrays that are not copied and must not be changed afterwards.
+   *
+   * @param theUnits the unit numbers of the rows.
+   * @param theDays the day counts of the columns.
+   * @param theVip whether the VIP discount was taken off.
+   * @param theDailyRates the daily rate of each row.
+   * @param theTotals the total of each cell, row after row.
+   */
+  QuoteMatrix(final int[] theUnits, final int[] theDays, final boolean theVip,
+              final long[] theDailyRates, final long[] theTotals) {
+    this.myUnits = theUnits;
+    this.myDays = theDays;
+    this.myVip = theVip;
+    this.myDailyRates = theDailyRates;
+    this.myTotals = theTotals;
+  }
+
+  /**
+   * Retrieves the number of rows.
+   *
+   * @return the number of vehicles quoted for.
+   */
+  public int rows() {
+    return myUnits.length;
+  }
+
+  /**
+   * Retrieves the number of columns.
+   *
+   * @return the number of day counts quoted for.
+   */
+  public int columns() {
+    return myDays.length;
+  }
+
+  /**
+   * Retrieves the vehicle of a row.
+   *
+   * @param theRow the row.
+   * @return the unit number of the vehicle.
+   */
+  public int getUnit(final int theRow) {
+    return myUnits[theRow];
+  }
+
+  /**
+   * Retrieves the day count of a column.
+   *
+   * @param theColumn the column.
+   * @return the number of rental days.
+   */
+  public int getDays(final int theColumn) {
+    return myDays[theColumn];
+  }
+
+  /**
+   * Determines whether a row was quoted.
+   *
+   * @param theRow the row.
+   * @return true if the vehicle of the row is in the fleet.
+   */
+  public boolean isQuoted(final int theRow) {
+    return myDailyRates[theRow] != NOT_QUOTED;
+  }
+
+  /**
+   * Retrieves the daily rate of the vehicle of a row.
+   *
+   * @param theRow the row.
+   * @return the daily rate in units, or {@link #NOT_QUOTED}.
+   */
+  public long getDailyRate(final int theRow) {
+    return myDailyRates[theRow];
+  }
+
+  /**
+   * Retrieves the amount to pay for a cell.
+   *
+   * @param theRow the row of the vehicle.
+   * @param theColumn the column of the day count.
+   * @return the total in units, or {@link #NOT_QUOTED} if the row was not quoted.
+   */
+  public long getTotal(final int theRow, final int theColumn) {
+    return isQuoted(theRow) ? myTotals[theRow * myDays.length + theColumn] : NOT_QUOTED;
+  }
+
+  /**
+   * Works out the lines of the bill for a cell.
+   *
+   * @param theRow the row of the vehicle.
+   * @param theColumn the column of the day count.
+   * @return the breakdown, or null if the row was not quoted.
+   */
+  public PriceBreakdown getBreakdown(final int theRow, final int theColumn) {
+    return isQuoted(theRow)
+           ? PricingEngine.price(myDailyRates[theRow], myDays[theColumn], myVip) : null;
+  }
+}
@@ -0,0 +1,133 @@
+package rentzsystemui;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import vehicles.AbstractVehicle;
+import vehicles.Fleet;
+import vehicles.VehicleRegistry;
+
+/**
+ * Quotes many vehicles for several rental lengths at once, without making bills.
+ *
+ * <p>The daily rate of every vehicle is looked up once, then each cell of the
+ * {@link QuoteMatrix} is priced by {@link PricingEngine} with the same insurance, VIP and tax
+ * rules a bill uses. Large matrices are split by rows and priced in parallel on the common
+ * fork-join pool.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class QuoteService {
+
+  /** Number of cells below which a block of rows is priced on the current thread. */
+  private static final int PARALLEL_THRESHOLD = 8192;
+
+  /** The fleet the vehicles are looked up in. */
+  private final VehicleRegistry myRegistry;
+
+  /**
+   * Creates a service that quotes the fleet loaded from the vehicle catalog.
+   */
+  public QuoteService() {
+    this(Fleet.shared().load());
+  }
+
+  /**
+   * Creates a service that quotes the vehicles of a registry.
+   *
+   * @param theRegistry the fleet.
+   */
+  public QuoteService(final VehicleRegistry theRegistry) {
+    this.myRegistry = Objects.requireNonNull(theRegistry);
+  }
+
+  /**
+   * Prices each vehicle for each rental length.
+   *
+   * @param theUnits the unit numbers of the vehicles; unknown ones give rows that are not
+   *        quoted.
+   * @param theDays the rental lengths, each at least one day.
+   * @param theVip whether the VIP discount is taken off.
+   * @return the prices.
+   * @throws IllegalArgumentException if a rental length is less than one day.
+   */
+  public QuoteMatrix quote(final int[] theUnits, final int[] theDays, final boolean theVip) {
+    final int[] units = theUnits.clone();
+    final int[] days = theDays.clone();
+    for (int count : days) {
+      if (count <= 0) {
+        throw new IllegalArgumentException("Invalid number of days: " + count);
+      }
+    }
+    final long[] rates = new long[units.length];
+    for (int row = 0; row < units.length; row++) {
+      final AbstractVehicle vehicle = myRegistry.get(units[row]);
+      rates[row] = vehicle == null ? QuoteMatrix.NOT_QUOTED : vehicle.getDailyRateUnits();
+    }
+    final long[] totals = new long[Math.multiplyExact(units.length, days.length)];
+    final PriceRows task = new PriceRows(rates, days, theVip, totals, 0, units.length);
+    if ((long) units.length * days.length < PARALLEL_THRESHOLD) {
+      task.compute();
+    } else {
+      ForkJoinPool.commonPool().invoke(task);
+    }
+    return new QuoteMatrix(units, days, theVip, rates, totals);
+  }
+
+  /**
+   * Prices a block of rows, splitting it in two while it is large.
+   */
+  private static final class PriceRows extends RecursiveAction {
+
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The daily rate of each row. */
+    private final long[] myRates;
+
+    /** The day count of each column. */
+    private final int[] myDays;
+
+    /** Whether the VIP discount is taken off. */
+    private final boolean myVip;
+
+    /** Receives the total of each cell. */
+    private final long[] myTotals;
+
+    /** The first row of the block. */
+    private final int myFrom;
+
+    /** The row after the last row of the block. */
+    private final int myTo;
+
+    private PriceRows(final long[] theRates, final int[] theDays, final boolean theVip,
+                      final long[] theTotals, final int theFrom, final int theTo) {
+      this.myRates = theRates;
+      this.myDays = theDays;
+      this.myVip = theVip;
+      this.myTotals = theTotals;
+      this.myFrom = theFrom;
+      this.myTo = theTo;
+    }
+
+    @Override
+    protected void compute() {
+      if (myTo - myFrom > 1 && (long) (myTo - myFrom) * myDays.length > PARALLEL_THRESHOLD) {
+        final int middle = (myFrom + myTo) >>> 1;
+        invokeAll(new PriceRows(myRates, myDays, myVip, myTotals, myFrom, middle),
+                  new PriceRows(myRates, myDays, myVip, myTotals, middle, myTo));
+        return;
+      }
+      for (int row = myFrom; row < myTo; row++) {
+        if (myRates[row] == QuoteMatrix.NOT_QUOTED) {
+          continue;
+        }
+        int cell = row * myDays.length;
+        for (int days : myDays) {
+          myTotals[cell++] = PricingEngine.price(myRates[row], days, myVip).getTotal();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,322 @@
+package rentzsystemui;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts the old text user and rental files to the binary {@link RecordFormat} and dumps
+ * record files as text for debugging.
+ *
+ * <p>Usage:</p>
+ * <pre>
+ *   RecordFileTool convert-users registeredusers.txt registeredusers.dat
+ *   RecordFileTool convert-rentals usersandcurrentrentals.txt usersandcurrentrentals.dat
+ *                                  [usersandcurrentrentals.journal]
+ *   RecordFileTool dump registeredusers.dat
+ * </pre>
+ *
+ * <p>The same conversion runs once on its own at startup when a binary file is missing but
+ * the text file it replaces still holds data. The text files are never changed. The
+ * conversion is noted on standard error, leaving standard output to the program.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class RecordFileTool {
+
+  /** Separator between the user name and the rentals in the text snapshot. */
+  private static final String USER_TOKEN = ":";
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private RecordFileTool() {
+
+  }
+
+  /**
+   * Runs the tool.
+   *
+   * @param theArgs the command followed by its files.
+   */
+  public static void main(final String[] theArgs) {
+    try {
+      if (theArgs.length == 3 && "convert-users".equals(theArgs[0])) {
+        System.out.println(convertUsers(theArgs[1], theArgs[2]) + " users converted");
+      } else if ((theArgs.length == 3 || theArgs.length == 4)
+                 && "convert-rentals".equals(theArgs[0])) {
+        final String journal = theArgs.length == 4 ? theArgs[3] : null;
+        System.out.println(convertRentals(theArgs[1], journal, theArgs[2])
+                           + " renters converted");
+      } else if (theArgs.length == 2 && "dump".equals(theArgs[0])) {
+        dump(theArgs[1]);
+      } else {
+        System.err.println("Usage: RecordFileTool convert-users <text> <binary>\n"
+                           + "       RecordFileTool convert-rentals <text> <binary> [journal]\n"
+                           + "       RecordFileTool dump <binary>");
+        System.exit(2);
+      }
+    } catch (final IOException e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Converts the text user file to a binary one if the binary file does not exist yet.
+   *
+   * @param theTextFile the 'name,password,vip' file.
+   * @param theBinaryFile the record file that replaces it.
+   * @return the record file.
+   */
+  public static String upgradeUsers(final String theTextFile, final String theBinaryFile) {
+    if (needsUpgrade(theTextFile, theBinaryFile)) {
+      try {
+        System.err.println("Converted " + convertUsers(theTextFile, theBinaryFile)
+                           + " users from " + theTextFile);
+      } catch (final IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return theBinaryFile;
+  }
+
+  /**
+   * Converts the text rental snapshot and journal to a binary snapshot if the binary file
+   * does not exist yet.
+   *
+   * @param theTextFile the 'username:rental1,rental2,...' snapshot.
+   * @param theTextJournal the text journal written next to it, may be missing.
+   * @param theBinaryFile the record file that replaces them.
+   * @return the record file.
+   */
+  public static String upgradeRentals(final String theTextFile, final String theTextJournal,
+                                      final String theBinaryFile) {
+    if (needsUpgrade(theTextFile, theBinaryFile)
+        || needsUpgrade(theTextJournal, theBinaryFile)) {
+      try {
+        System.err.println("Converted " + convertRentals(theTextFile, theTextJournal,
+                           theBinaryFile) + " renters from " + theTextFile);
+      } catch (final IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return theBinaryFile;
+  }
+
+  private static boolean needsUpgrade(final String theTextFile, final String theBinaryFile) {
+    return !new File(theBinaryFile).exists() && new File(theTextFile).length() > 0;
+  }
+
+  /**
+   * Converts a text user file to a record file.
+   *
+   * @param theTextFile the 'name,password,vip' file.
+   * @param theBinaryFile the record file to write.
+   * @return the number of users converted.
+   * @throws IOException if a file could not be read or written.
+   */
+  public static long convertUsers(final String theTextFile, final String theBinaryFile)
+      throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes(RecordFormat.header(RecordFormat.Kind.USERS));
+    final long users = new UserFileParser().parse(theTextFile,
+        user -> out.writeBytes(RecordFormat.userRecord(user)),
+        (lineNumber, reason) -> System.err.println("Skipping line " + lineNumber + " of "
+                                                   + theTextFile + ": " + reason));
+    DurableFiles.replace(theBinaryFile, out.toByteArray(), DurableFiles.getPolicy());
+    return users;
+  }
+
+  /**
+   * Converts a text rental snapshot, and the text journal written after it, to a record
+   * snapshot.
+   *
+   * @param theTextFile the 'username:rental1,rental2,...' snapshot.
+   * @param theTextJournal the '+username:rental' and '-username:rental' journal, or null.
+   * @param theBinaryFile the record file to write.
+   * @return the number of users holding rentals.
+   * @throws IOException if a file could not be read or written.
+   */
+  public static int convertRentals(final String theTextFile, final String theTextJournal,
+                                   final String theBinaryFile) throws IOException {
+    final Map<String, Set<String>> rentals = new LinkedHashMap<>();
+    final String generation = readTextSnapshot(theTextFile, rentals);
+    if (theTextJournal != null) {
+      readTextJournal(theTextJournal, generation, rentals);
+    }
+    rentals.values().removeIf(Set::isEmpty);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes(RecordFormat.header(RecordFormat.Kind.RENTALS));
+    out.writeBytes(RecordFormat.generationRecord(0));
+    for (Map.Entry<String, Set<String>> entry : rentals.entrySet()) {
+      out.writeBytes(RecordFormat.rentalsRecord(entry.getKey(), entry.getValue()));
+    }
+    DurableFiles.replace(theBinaryFile, out.toByteArray(), DurableFiles.getPolicy());
+    return rentals.size();
+  }
+
+  private static String readTextSnapshot(final String theFile,
+                                         final Map<String, Set<String>> theRentals)
+      throws IOException {
+    if (!new File(theFile).exists()) {
+      return null;
+    }
+    String generation = null;
+    try (BufferedReader in = new BufferedReader(new FileReader(theFile))) {
+      String line;
+      boolean firstLine = true;
+      while ((line = in.readLine()) != null) {
+        if (firstLine && line.startsWith("#")) {
+          generation = line;
+          firstLine = false;
+          continue;
+        }
+        firstLine = false;
+        final String[] parts = line.split(USER_TOKEN);
+        if (parts.length < 2) {
+          continue;
+        }
+        for (String rental : parts[1].split(FileLoader.SPLIT_TOKEN)) {
+          if (!rental.isEmpty()) {
+            theRentals.computeIfAbsent(parts[0], k -> new LinkedHashSet<>()).add(rental);
+          }
+        }
+      }
+    }
+    return generation;
+  }
+
+  private static void readTextJournal(final String theFile, final String theGeneration,
+                                      final Map<String, Set<String>> theRentals)
+      throws IOException {
+    if (!new File(theFile).exists()) {
+      return;
+    }
+    try (BufferedReader in = new BufferedReader(new FileReader(theFile))) {
+      String line;
+      boolean firstLine = true;
+      while ((line = in.readLine()) != null) {
+        if (firstLine && line.startsWith("#")) {
+          if (!line.equals(theGeneration == null ? "#0" : theGeneration)) {
+            // Left over from before the last compaction, already part of the snapshot.
+            return;
+          }
+          firstLine = false;
+          continue;
+        }
+        firstLine = false;
+        final int separator = line.indexOf(USER_TOKEN);
+        if (separator < 1) {
+          continue;
+        }
+        final String userName = line.substring(1, separator);
+        final String rental = line.substring(separator + 1);
+        if (line.charAt(0) == '+') {
+          for (Set<String> held : theRentals.values()) {
+            held.remove(rental);
+          }
+          theRentals.computeIfAbsent(userName, k -> new LinkedHashSet<>()).add(rental);
+        } else if (line.charAt(0) == '-') {
+          final Set<String> held = theRentals.get(userName);
+          if (held != null) {
+            held.remove(rental);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Prints every record of a record file, one per line.
+   *
+   * @param theFile the record file.
+   * @throws IOException if the file could not be read or is not a record file.
+   */
+  public static void dump(final String theFile) throws IOException {
+    final MappedByteBuffer data = RecordFormat.map(theFile);
+    if (data == null) {
+      System.out.println(theFile + ": empty");
+      return;
+    }
+    final RecordFormat.Kind kind = RecordFormat.readHeader(data);
+    System.out.println(theFile + ": " + kind + " version " + data.getShort(4));
+    final int end = RecordFormat.scan(data, RecordFormat.HEADER_SIZE, data.limit(),
+        (offset, fields) -> System.out.println(offset + "\t" + describe(fields)));
+    if (end < data.limit()) {
+      System.out.println(end + "\ttorn or corrupt tail of " + (data.limit() - end) + " bytes");
+    }
+  }
+
+  private static String describe(final RecordFormat.Fields theFields) {
+    final StringBuilder text = new StringBuilder();
+    text.append((char) theFields.getTag());
+    switch (theFields.getTag()) {
+      case RecordFormat.TAG_USER:
+        text.append('\t').append(theFields.readString());
+        text.append('\t').append(theFields.readString());
+        text.append('\t').append(theFields.readBoolean());
+        break;
+      case RecordFormat.TAG_GENERATION:
+        text.append('\t').append(theFields.readLong());
+        break;
+      case RecordFormat.TAG_RENTALS:
+        text.append('\t').append(theFields.readString());
+        final List<String> rentals = new ArrayList<>();
+        for (int i = theFields.readInt(); i > 0; i--) {
+          rentals.add(theFields.readString());
+        }
+        text.append('\t').append(rentals);
+        break;
+      case RecordFormat.TAG_RENT:
+      case RecordFormat.TAG_DROP:
+        text.append('\t').append(theFields.readString());
+        text.append('\t').append(theFields.readString());
+        break;
+      case RecordFormat.TAG_UNIT_RENTALS:
+        text.append('\t').append(theFields.readString());
+        final List<Integer> units = new ArrayList<>();
+        for (int i = theFields.readInt(); i > 0; i--) {
+          units.add(theFields.readInt());
+        }
+        text.append('\t').append(units);
+        break;
+      case RecordFormat.TAG_UNIT_RENT:
+      case RecordFormat.TAG_UNIT_DROP:
+        text.append('\t').append(theFields.readString());
+        text.append('\t').append(theFields.readInt());
+        break;
+      case RecordFormat.TAG_RESERVE:
+        text.append('\t').append(theFields.readString());
+        text.append('\t').append(theFields.readInt());
+        text.append('\t').append(LocalDate.ofEpochDay(theFields.readLong()));
+        text.append('\t').append(LocalDate.ofEpochDay(theFields.readLong()));
+        break;
+      case RecordFormat.TAG_RESERVE_END:
+        text.append('\t').append(theFields.readInt());
+        text.append('\t').append(LocalDate.ofEpochDay(theFields.readLong()));
+        text.append('\t').append(LocalDate.ofEpochDay(theFields.readLong()));
+        break;
+      case RecordFormat.TAG_BILL:
+        final StoredBill bill = RecordFormat.readBill(theFields);
+        text.append('\t').append(bill.getIssuedTime());
+        text.append('\t').append(TsvBillRenderer.toLine(bill));
+        break;
+      default:
+        text.append("\tunknown record");
+        break;
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,643 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * The binary record format of the user and rental files.
+ *
+ * <p>A file starts with an 8 byte header: the magic number "RZBF", a 16-bit format version
+ * and a byte naming what kind of file it is, followed by one reserved byte. After the header
+ * come the records, each framed as a 32-bit payload length, the payload and a CRC32 of the
+ * payload. A payload starts with a tag byte telling what the record holds. Strings are
+ * written as a 16-bit length followed by their UTF-8 bytes, so names may contain any
+ * character, including the ',' and ':' the text files used as separators. All numbers are
+ * big-endian.</p>
+ *
+ * <p>Version 2 added the rental records that name a vehicle by its unit number instead of its
+ * name, and later the reservation and bill files. The records of version 1 are still read, so
+ * older files keep working until they are next rewritten.</p>
+ *
+ * <p>Readers stop at the first record that is cut short or fails its checksum. Every write
+ * either appends whole records or replaces the file atomically, so a crash can only tear the
+ * last record, and {@link #recover(String)} cuts it off. Damage anywhere else is reported
+ * instead of repaired, so the records after it are never thrown away.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class RecordFormat {
+
+  /** Magic number at the start of every record file, "RZBF". */
+  public static final int MAGIC = 0x525A4246;
+
+  /** Version of the format written by this code. */
+  public static final short VERSION = 2;
+
+  /** Size of the file header. */
+  public static final int HEADER_SIZE = 8;
+
+  /** Tag of a user record: name, password and VIP flag. */
+  public static final byte TAG_USER = 'U';
+
+  /** Tag of a generation record: the generation of a snapshot or journal. */
+  public static final byte TAG_GENERATION = 'G';
+
+  /** Tag of a version 1 snapshot record: a user name, a count and that many vehicle names. */
+  public static final byte TAG_RENTALS = 'R';
+
+  /** Tag of a version 1 rent record: user name and vehicle name. */
+  public static final byte TAG_RENT = '+';
+
+  /** Tag of a version 1 drop record: user name and vehicle name. */
+  public static final byte TAG_DROP = '-';
+
+  /** Tag of a snapshot record: a user name, a count and that many vehicle unit numbers. */
+  public static final byte TAG_UNIT_RENTALS = 'K';
+
+  /** Tag of a rent record: user name and vehicle unit number. */
+  public static final byte TAG_UNIT_RENT = 'P';
+
+  /** Tag of a drop record: user name and vehicle unit number. */
+  public static final byte TAG_UNIT_DROP = 'D';
+
+  /** Tag of a reservation record: user name, unit number, first day and end day. */
+  public static final byte TAG_RESERVE = 'B';
+
+  /** Tag of a record that moves the end of a reservation: unit number, first and end day. */
+  public static final byte TAG_RESERVE_END = 'E';
+
+  /** Tag of a bill record: the bill, its vehicle and its priced lines, see {@link StoredBill}. */
+  public static final byte TAG_BILL = 'L';
+
+  /** Bytes in a record besides its payload: the length and the checksum. */
+  private static final int FRAME_OVERHEAD = 8;
+
+  /** Largest payload a reader accepts, anything longer is treated as corruption. */
+  private static final int MAX_PAYLOAD = 1 << 24;
+
+  /** Largest string that fits the 16-bit length. */
+  private static final int MAX_STRING = 0xFFFF;
+
+  /** Guards the creation of new files so only one header is ever written. */
+  private static final Object HEADER_LOCK = new Object();
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private RecordFormat() {
+
+  }
+
+  /**
+   * What a record file holds, stored in its header.
+   */
+  public enum Kind {
+    /** Registered users, one user record each. */
+    USERS(1),
+
+    /** Snapshot of the current rentals: a generation record, then one record per user. */
+    RENTALS(2),
+
+    /** Rents and drops since a snapshot: a generation record, then rent and drop records. */
+    JOURNAL(3),
+
+    /** Vehicle reservations: reservation records and the records that end them early. */
+    RESERVATIONS(4),
+
+    /** One segment of the issued bills: bill records in the order they were issued. */
+    BILLS(5);
+
+    /** The byte stored in the header. */
+    private final byte myCode;
+
+    Kind(final int theCode) {
+      this.myCode = (byte) theCode;
+    }
+
+    /**
+     * Looks up a kind by its header byte.
+     *
+     * @param theCode the byte from the header.
+     * @return the kind, or null if the byte is unknown.
+     */
+    public static Kind fromCode(final byte theCode) {
+      for (Kind kind : values()) {
+        if (kind.myCode == theCode) {
+          return kind;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Receives the records found while scanning a file.
+   */
+  public interface RecordVisitor {
+
+    /**
+     * Called for every valid record in file order.
+     *
+     * @param theOffset the offset of the record in the file.
+     * @param theFields the payload of the record, positioned after its tag.
+     */
+    void record(int theOffset, Fields theFields);
+  }
+
+  /**
+   * Sequential reader over the payload of one record.
+   */
+  public static final class Fields {
+
+    /** The payload, positioned at the next field. */
+    private final ByteBuffer myPayload;
+
+    /** The tag of the record. */
+    private final byte myTag;
+
+    private Fields(final ByteBuffer thePayload) {
+      this.myPayload = thePayload;
+      this.myTag = thePayload.get();
+    }
+
+    /**
+     * Retrieves the tag of the record.
+     *
+     * @return one of the TAG constants.
+     */
+    public byte getTag() {
+      return myTag;
+    }
+
+    /**
+     * Reads the next string.
+     *
+     * @return the string.
+     */
+    public String readString() {
+      final byte[] bytes = new byte[myPayload.getShort() & MAX_STRING];
+      myPayload.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next flag.
+     *
+     * @return the flag.
+     */
+    public boolean readBoolean() {
+      return myPayload.get() != 0;
+    }
+
+    /**
+     * Reads the next 32-bit number.
+     *
+     * @return the number.
+     */
+    public int readInt() {
+      return myPayload.getInt();
+    }
+
+    /**
+     * Reads the next 64-bit number.
+     *
+     * @return the number.
+     */
+    public long readLong() {
+      return myPayload.getLong();
+    }
+  }
+
+  /**
+   * Builds the header of a new file.
+   *
+   * @param theKind what the file holds.
+   * @return the encoded header.
+   */
+  public static byte[] header(final Kind theKind) {
+    return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION)
+                     .put(theKind.myCode).put((byte) 0).array();
+  }
+
+  /**
+   * Encodes a user record.
+   *
+   * @param theUser the user.
+   * @return the framed record.
+   */
+  public static byte[] userRecord(final User theUser) {
+    final byte[] name = encode(theUser.getMyName());
+    final byte[] password = encode(theUser.getMyPassword());
+    final ByteBuffer record = open(TAG_USER, 2 + name.length + 2 + password.length + 1);
+    putString(record, name);
+    putString(record, password);
+    record.put((byte) (Boolean.TRUE.equals(theUser.getMyVipStatus()) ? 1 : 0));
+    return close(record);
+  }
+
+  /**
+   * Encodes a generation record.
+   *
+   * @param theGeneration the generation.
+   * @return the framed record.
+   */
+  public static byte[] generationRecord(final long theGeneration) {
+    final ByteBuffer record = open(TAG_GENERATION, Long.BYTES);
+    record.putLong(theGeneration);
+    return close(record);
+  }
+
+  /**
+   * Encodes a snapshot record of one user and all of their rentals.
+   *
+   * @param theUserName the name of the renter.
+   * @param theRentals the rented vehicles.
+   * @return the framed record.
+   */
+  public static byte[] rentalsRecord(final String theUserName,
+                                     final Collection<String> theRentals) {
+    final byte[] name = encode(theUserName);
+    final byte[][] rentals = new byte[theRentals.size()][];
+    int size = 2 + name.length + Integer.BYTES;
+    int i = 0;
+    for (String rental : theRentals) {
+      rentals[i] = encode(rental);
+      size += 2 + rentals[i].length;
+      i++;
+    }
+    final ByteBuffer record = open(TAG_RENTALS, size);
+    putString(record, name);
+    record.putInt(rentals.length);
+    for (byte[] rental : rentals) {
+      putString(record, rental);
+    }
+    return close(record);
+  }
+
+  /**
+   * Encodes a snapshot record of one user and the unit numbers of all of their rentals.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnits the unit numbers of the rented vehicles.
+   * @return the framed record.
+   */
+  public static byte[] unitRentalsRecord(final String theUserName,
+                                         final Collection<Integer> theUnits) {
+    final byte[] name = encode(theUserName);
+    final ByteBuffer record = open(TAG_UNIT_RENTALS,
+        2 + name.length + Integer.BYTES + theUnits.size() * Integer.BYTES);
+    putString(record, name);
+    record.putInt(theUnits.size());
+    for (int unit : theUnits) {
+      record.putInt(unit);
+    }
+    return close(record);
+  }
+
+  /**
+   * Encodes a rent or drop record of a vehicle unit number.
+   *
+   * @param theTag {@link #TAG_UNIT_RENT} or {@link #TAG_UNIT_DROP}.
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the vehicle.
+   * @return the framed record.
+   */
+  public static byte[] unitChangeRecord(final byte theTag, final String theUserName,
+                                        final int theUnit) {
+    final byte[] name = encode(theUserName);
+    final ByteBuffer record = open(theTag, 2 + name.length + Integer.BYTES);
+    putString(record, name);
+    record.putInt(theUnit);
+    return close(record);
+  }
+
+  /**
+   * Encodes a reservation record. Days are counted from the epoch, the end day is exclusive.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day of the reservation.
+   * @param theTo the day after the last day of the reservation.
+   * @return the framed record.
+   */
+  public static byte[] reservationRecord(final String theUserName, final int theUnit,
+                                         final long theFrom, final long theTo) {
+    final byte[] name = encode(theUserName);
+    final ByteBuffer record = open(TAG_RESERVE,
+        2 + name.length + Integer.BYTES + 2 * Long.BYTES);
+    putString(record, name);
+    record.putInt(theUnit).putLong(theFrom).putLong(theTo);
+    return close(record);
+  }
+
+  /**
+   * Encodes a record that moves the end of a reservation. An end on or before the first day
+   * removes the reservation.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day of the reservation.
+   * @param theTo the new day after the last day of the reservation.
+   * @return the framed record.
+   */
+  public static byte[] reservationEndRecord(final int theUnit, final long theFrom,
+                                            final long theTo) {
+    final ByteBuffer record = open(TAG_RESERVE_END, Integer.BYTES + 2 * Long.BYTES);
+    record.putInt(theUnit).putLong(theFrom).putLong(theTo);
+    return close(record);
+  }
+
+  /**
+   * Encodes a bill record. The amounts are in units of {@link PricingEngine}.
+   *
+   * @param theBill the issued bill.
+   * @return the framed record.
+   */
+  public static byte[] billRecord(final StoredBill theBill) {
+    final byte[] user = encode(theBill.getUserName());
+    final byte[] name = encode(theBill.getVehicleName());
+    final byte[] type = encode(theBill.getVehicleType());
+    final byte[] vin = encode(theBill.getVin());
+    final PriceBreakdown price = theBill.getPrice();
+    final ByteBuffer record = open(TAG_BILL, 2 * Long.BYTES + 2 + user.length + 1
+        + Integer.BYTES + 2 + name.length + 2 + type.length + 2 + vin.length + Long.BYTES
+        + Integer.BYTES + 6 * Long.BYTES);
+    record.putLong(theBill.getBillId()).putLong(theBill.getIssuedAt());
+    putString(record, user);
+    record.put((byte) (theBill.isVip() ? 1 : 0)).putInt(theBill.getUnit());
+    putString(record, name);
+    putString(record, type);
+    putString(record, vin);
+    record.putLong(theBill.getFrom().toEpochDay()).putInt(price.getDays())
+          .putLong(price.getDailyRate()).putLong(price.getSubtotal())
+          .putLong(price.getInsurance()).putLong(price.getVipDiscount())
+          .putLong(price.getTax()).putLong(price.getTotal());
+    return close(record);
+  }
+
+  /**
+   * Decodes the fields of a bill record, see {@link #billRecord(StoredBill)}.
+   *
+   * @param theFields the fields of a record tagged {@link #TAG_BILL}, positioned after its tag.
+   * @return the bill.
+   */
+  public static StoredBill readBill(final Fields theFields) {
+    final long billId = theFields.readLong();
+    final long issuedAt = theFields.readLong();
+    final String user = theFields.readString();
+    final boolean vip = theFields.readBoolean();
+    final int unit = theFields.readInt();
+    final String name = theFields.readString();
+    final String type = theFields.readString();
+    final String vin = theFields.readString();
+    final LocalDate from = LocalDate.ofEpochDay(theFields.readLong());
+    final int days = theFields.readInt();
+    final PriceBreakdown price = new PriceBreakdown(theFields.readLong(), days,
+        theFields.readLong(), theFields.readLong(), theFields.readLong(), theFields.readLong(),
+        theFields.readLong());
+    return new StoredBill(billId, issuedAt, user, vip, unit, name, type, vin, from, price);
+  }
+
+  /**
+   * Encodes a version 1 rent or drop record.
+   *
+   * @param theTag {@link #TAG_RENT} or {@link #TAG_DROP}.
+   * @param theUserName the name of the renter.
+   * @param theRental the vehicle.
+   * @return the framed record.
+   */
+  public static byte[] changeRecord(final byte theTag, final String theUserName,
+                                    final String theRental) {
+    final byte[] name = encode(theUserName);
+    final byte[] rental = encode(theRental);
+    final ByteBuffer record = open(theTag, 2 + name.length + 2 + rental.length);
+    putString(record, name);
+    putString(record, rental);
+    return close(record);
+  }
+
+  /**
+   * Checks the header of a mapped file.
+   *
+   * @param theData the start of the file.
+   * @return what the file holds.
+   * @throws IOException if the data is not a record file this code can read.
+   */
+  public static Kind readHeader(final ByteBuffer theData) throws IOException {
+    if (theData.limit() < HEADER_SIZE || theData.getInt(0) != MAGIC) {
+      throw new IOException("Not a Rentz record file");
+    }
+    final short version = theData.getShort(4);
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported record file version " + version);
+    }
+    final Kind kind = Kind.fromCode(theData.get(6));
+    if (kind == null) {
+      throw new IOException("Unknown record file kind " + theData.get(6));
+    }
+    return kind;
+  }
+
+  /**
+   * Determines whether a file starts with the record file magic number.
+   *
+   * @param theFile the file to look at.
+   * @return true if the file exists and is a record file.
+   */
+  public static boolean isRecordFile(final String theFile) {
+    final Path path = Paths.get(theFile).toAbsolutePath();
+    if (!Files.exists(path)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+      while (magic.hasRemaining() && channel.read(magic) > 0) {
+        continue;
+      }
+      return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gives a missing or empty file its header, so records can be appended to it.
+   *
+   * @param theFile the file.
+   * @param theKind what the file holds.
+   * @throws IOException if the header could not be written.
+   */
+  public static void ensureHeader(final String theFile, final Kind theKind) throws IOException {
+    synchronized (HEADER_LOCK) {
+      final Path path = Paths.get(theFile).toAbsolutePath();
+      if (!Files.exists(path) || Files.size(path) == 0) {
+        DurableFiles.replace(theFile, header(theKind), DurableFiles.getPolicy());
+      }
+    }
+  }
+
+  /**
+   * Scans the records in part of a mapped file.
+   *
+   * @param theData the mapped file.
+   * @param theFrom the offset of the first record.
+   * @param theTo the offset to stop at.
+   * @param theVisitor receives every valid record.
+   * @return the offset just past the last valid record.
+   */
+  public static int scan(final ByteBuffer theData, final int theFrom, final int theTo,
+                         final RecordVisitor theVisitor) {
+    final CRC32 crc = new CRC32();
+    int offset = theFrom;
+    while (theTo - offset >= FRAME_OVERHEAD) {
+      final int length = theData.getInt(offset);
+      if (length < 1 || length > MAX_PAYLOAD || theTo - offset - FRAME_OVERHEAD < length) {
+        break;
+      }
+      final ByteBuffer payload = theData.duplicate();
+      payload.limit(offset + Integer.BYTES + length).position(offset + Integer.BYTES);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != theData.getInt(offset + Integer.BYTES + length)) {
+        break;
+      }
+      try {
+        theVisitor.record(offset, new Fields(payload));
+      } catch (final RuntimeException e) {
+        // The checksum matched, so the payload is what was written; a field it does not hold
+        // means the record came from a different kind of file.
+        System.err.println("Skipping unreadable record at offset " + offset);
+      }
+      offset += length + FRAME_OVERHEAD;
+    }
+    return offset;
+  }
+
+  /**
+   * Reads every record of a file.
+   *
+   * @param theFile the file.
+   * @param theVisitor receives every valid record.
+   * @return what the file holds, or null if it is missing or empty.
+   * @throws IOException if the file could not be read or is not a record file.
+   */
+  public static Kind read(final String theFile, final RecordVisitor theVisitor)
+      throws IOException {
+    final MappedByteBuffer data = map(theFile);
+    if (data == null) {
+      return null;
+    }
+    final Kind kind = readHeader(data);
+    scan(data, HEADER_SIZE, data.limit(), theVisitor);
+    return kind;
+  }
+
+  /**
+   * Repairs a record file after a crash. A leftover temporary file is deleted and a torn
+   * record at the end of the file is cut off. A damaged record with whole records after it
+   * was not torn by a crash, so the file is left alone and an exception is thrown instead.
+   *
+   * @param theFile the file to repair.
+   * @return true if the file had to be repaired.
+   * @throws IOException if the file could not be read or repaired, or is damaged.
+   */
+  public static boolean recover(final String theFile) throws IOException {
+    final boolean repaired = DurableFiles.discardTemp(theFile);
+    final MappedByteBuffer data = map(theFile);
+    if (data == null) {
+      return repaired;
+    }
+    readHeader(data);
+    final int end = scan(data, HEADER_SIZE, data.limit(), (offset, fields) -> { });
+    if (end == data.limit()) {
+      return repaired;
+    }
+    if (data.limit() - end >= FRAME_OVERHEAD) {
+      final int length = data.getInt(end);
+      if (length >= 1 && length <= MAX_PAYLOAD
+          && data.limit() - end - FRAME_OVERHEAD > length) {
+        throw new IOException("Damaged record at offset " + end + " of " + theFile);
+      }
+    }
+    System.err.println("Discarding torn record at the end of " + theFile);
+    try (FileChannel channel = FileChannel.open(Paths.get(theFile).toAbsolutePath(),
+        StandardOpenOption.WRITE)) {
+      channel.truncate(end);
+      channel.force(true);
+    }
+    return true;
+  }
+
+  /**
+   * Maps a whole file read-only.
+   *
+   * @param theFile the file.
+   * @return the mapped file, or null if it is missing or empty.
+   * @throws IOException if the file could not be mapped.
+   */
+  public static MappedByteBuffer map(final String theFile) throws IOException {
+    final Path path = Paths.get(theFile).toAbsolutePath();
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size == 0) {
+        return null;
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Record file is too large to map: " + path);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  /**
+   * Creates a reader over the record starting at an offset, which must have been reported by
+   * {@link #scan}.
+   *
+   * @param theData the mapped file.
+   * @param theOffset the offset of the record.
+   * @return the fields of the record, positioned after its tag.
+   */
+  public static Fields fieldsAt(final ByteBuffer theData, final int theOffset) {
+    final ByteBuffer payload = theData.duplicate();
+    payload.limit(theOffset + Integer.BYTES + theData.getInt(theOffset))
+           .position(theOffset + Integer.BYTES);
+    return new Fields(payload);
+  }
+
+  private static byte[] encode(final String theString) {
+    final byte[] bytes = theString.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING) {
+      throw new IllegalArgumentException("String is longer than " + MAX_STRING + " bytes");
+    }
+    return bytes;
+  }
+
+  private static ByteBuffer open(final byte theTag, final int theFieldsSize) {
+    final ByteBuffer record = ByteBuffer.allocate(FRAME_OVERHEAD + 1 + theFieldsSize);
+    record.putInt(1 + theFieldsSize).put(theTag);
+    return record;
+  }
+
+  private static void putString(final ByteBuffer theRecord, final byte[] theString) {
+    theRecord.putShort((short) theString.length).put(theString);
+  }
+
+  private static byte[] close(final ByteBuffer theRecord) {
+    final CRC32 crc = new CRC32();
+    crc.update(theRecord.array(), Integer.BYTES, theRecord.position() - Integer.BYTES);
+    theRecord.putInt((int) crc.getValue());
+    return theRecord.array();
+  }
+}
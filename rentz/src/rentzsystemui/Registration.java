@@ -1,213 +1,264 @@
-package rentzsystemui;
-
-import java.util.Map;
-import java.util.Objects;
-import java.util.Scanner;
-import java.util.regex.Pattern;
-import javax.swing.JOptionPane;
-
-/**
- * The Registration object to keep track and manage
- * the active users.
- *
- * @author Ricardo Salas
- *
- */
-public class Registration {
-
-  /**
-   * Scanner for the application.
-   */
-  public static final Scanner SCANNER = new Scanner(System.in);
-
-  /**
-   * User Storage File.
-   */
-  private static final String DEFAULT_USERFILE_NAME = "../rentz/src/"
-                                     + "registrationandcurrentrentalList/registeredusers.txt";
-
-  /**
-   * The registered user list for sign in.
-   */
-  private final Map<String, User> myUserList;
-
-  /**
-   *  The file of user names.
-   */
-  private final String myUserfileName;
-
-  /**
-   * Constructs a sign in/registration system.
-   */
-  public Registration() {
-
-    this(DEFAULT_USERFILE_NAME);
-  }
-
-  /**
-   * Constructor for registering users.
-   *
-   * @param theUserfileName the name of the file of users.
-   */
-  public Registration(final String theUserfileName) {
-
-    this.myUserfileName = theUserfileName;
-    myUserList = FileLoader.readItemsFromFile(theUserfileName);
-
-  }
-
-  /**
-   * getter for myUserList.
-   *
-   * @return myUserList
-   */
-  public Map<String, User> getMyUserList() {
-    return myUserList;
-  }
-
-  /**
-   * new member sign-in.
-   *
-   * @return boolean true
-   */
-  public boolean newMemSignUp(String theUserName, String thePassword) {
-
-    final boolean result;
-
-    while (myUserList.containsKey(theUserName)) {
-
-      theUserName = JOptionPane.showInputDialog("User already exists, enter different user name:");
-      continue;
-    }
-
-    boolean validPassword = validatingPassword(theUserName, thePassword);
-
-    while (!validPassword) {
-      thePassword = JOptionPane.showInputDialog("create a new password \n"
-                                           + "Password must contain: \n"
-                                           + "at least 6 characters \n"
-                                           + "at least one digit \n" 
-                                           + "at least one upper case character \n"
-                                           + "at least one lower case character \n" 
-                                           + "at least one special character \n");
-
-      validPassword = validatingPassword(thePassword, theUserName);
-    }
-    int buttonPressed = JOptionPane.showConfirmDialog(null, "Join our Premium Membership?");
-
-    boolean vipStatus = false;
-    if (buttonPressed == JOptionPane.YES_OPTION) {
-      vipStatus = true;
-
-    } else if (buttonPressed == JOptionPane.NO_OPTION) {
-      vipStatus = false;
-    }
-
-    final User newUser = new User(theUserName, thePassword, vipStatus);
-
-    if (register(newUser)) {
-      JOptionPane.showMessageDialog(null, "Welcome to RENTZ, your account is now active.");
-    }
-
-    result = true;
-
-    return result;
-  }
-
-  /**
-   * Verifies that the member is on the list.
-   *
-   * @param theUserName the name of the user.
-   * @param password the password created by the user.
-   * @return boolean
-   */
-  public boolean existingMemLogin(String theUserName, String password) {
-    boolean result = false;
-
-    if (login(theUserName, password)) {
-      result = true;
-    }
-
-    return result;
-  }
-
-  /**
-   * Verifies if the created password meets the requirements.
-   *
-   * @param theUserName the name of the user.
-   * @param thePassword the created string by the user.
-   * @return validPassword
-   */
-  private boolean validatingPassword(final String theUserName, final String thePassword) {
-
-    boolean validPassword = false;
-    final int minLength = 6;
-    final String symbols = ".*[`~!@#$%^&*()\\-_=+\\\\|\\[{\\]};:'\",<.>/?].*";
-
-    if (thePassword.length() >= minLength
-        && Pattern.compile(".*[a-z].*").matcher(thePassword).find()
-        && Pattern.compile(".*[0-9].*").matcher(thePassword).find()
-        && Pattern.compile(".*[A-Z].*").matcher(thePassword).find()
-        && Pattern.compile(symbols).matcher(thePassword).find()
-        && !(thePassword.contains(theUserName))) {
-      validPassword = true;
-    }
-    return validPassword;
-  }
-
-  /**
-   * Verify Sign-in procedure.
-   *
-   * @param theUsername the users' name for sign-in
-   * @param thePassword password for sign in
-   * @return sign-in success
-   */
-  public boolean login(final String theUsername, final String thePassword) {
-
-    Objects.requireNonNull(theUsername);
-    Objects.requireNonNull(thePassword);
-
-    if (theUsername.isEmpty() || thePassword.isEmpty()) {
-      JOptionPane.showMessageDialog(null, "To login a username and password is required");
-      throw new IllegalArgumentException();
-    }
-
-    User userInFile = myUserList.get(theUsername);
-
-    return userInFile != null && userInFile.getMyPassword().equals(thePassword);
-  }
-
-  /**
-   * Adds a user to the registered user list.
-   *
-   * @param theUser the user who is signing up or signing in.
-   * @return true/false returns if registration is successful
-   */
-  public boolean register(final User theUser) {
-    myUserList.put(theUser.getMyName(), theUser);
-    FileLoader.writeUserToFile(myUserfileName, theUser);
-
-    return true;
-  }
-
-  /**
-   * Empties the user list.
-   */
-  public void clear() {
-    myUserList.clear();
-  }
-
-  public String getUserfileName() {
-    return myUserfileName;
-  }
-
-  /**
-   * Converts the Registered users as a list.
-   *
-   * @return the string representation of registration
-   */
-  public String toString() {
-    return "Registered UserList" + myUserList.toString();
-  }
-
-}
+package rentzsystemui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Scanner;
+
+/**
+ * The Registration object to keep track and manage
+ * the active users.
+ *
+ * <p>The screens share one registry for the default user file through {@link #shared()}, so
+ * the file is indexed once per process instead of once per login. Before users are looked up
+ * the registry compares the file's size and modification time with what it saw last, and
+ * only when they differ does it index the appended users or rebuild the index.</p>
+ *
+ * <p>Signing up, with the checks on the user name and password, goes through
+ * {@link RentalService#register}.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public class Registration {
+
+  /**
+   * Scanner for the application.
+   */
+  public static final Scanner SCANNER = new Scanner(System.in);
+
+  /**
+   * User Storage File.
+   */
+  private static final String DEFAULT_USERFILE_NAME = "../rentz/src/"
+                                     + "registrationandcurrentrentallist/registeredusers.dat";
+
+  /**
+   * Text user file used before the binary record format, converted on first start.
+   */
+  private static final String LEGACY_USERFILE_NAME = "../rentz/src/"
+                                     + "registrationandcurrentrentallist/registeredusers.txt";
+
+  /**
+   * The memory-mapped directory of registered users.
+   */
+  private final UserDirectory myUserDirectory;
+
+  /**
+   * The registered user list for sign in, a read-only view of the directory.
+   */
+  private final Map<String, User> myUserList;
+
+  /**
+   *  The file of user names.
+   */
+  private final String myUserfileName;
+
+  /**
+   * The user file as a path.
+   */
+  private final Path myUserfilePath;
+
+  /**
+   * Size of the user file when the directory last caught up with it, -1 if it was missing.
+   */
+  private long mySeenSize = -1;
+
+  /**
+   * Modification time of the user file in milliseconds when the directory last caught up.
+   */
+  private long mySeenModified;
+
+  /**
+   * Holds the registry shared by the process, created on first use.
+   */
+  private static final class SharedHolder {
+
+    /** The registry for the default user file. */
+    private static final Registration INSTANCE = new Registration();
+  }
+
+  /**
+   * Constructs a sign in/registration system.
+   */
+  public Registration() {
+
+    this(RecordFileTool.upgradeUsers(LEGACY_USERFILE_NAME, DEFAULT_USERFILE_NAME));
+  }
+
+  /**
+   * Constructor for registering users. The users are not loaded up front, the file is opened
+   * as a {@link UserDirectory} and each record is read when it is looked up.
+   *
+   * @param theUserfileName the name of the file of users.
+   * @throws IllegalStateException if the file of users could not be opened.
+   */
+  public Registration(final String theUserfileName) {
+
+    this.myUserfileName = theUserfileName;
+    try {
+      RecordFormat.recover(theUserfileName);
+      myUserDirectory = UserDirectory.open(theUserfileName);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not open user file " + theUserfileName, e);
+    }
+    myUserList = myUserDirectory.asMap();
+    myUserfilePath = Paths.get(theUserfileName).toAbsolutePath();
+    noteFileSeen();
+
+  }
+
+  /**
+   * Retrieves the registry of the default user file shared by the whole process.
+   *
+   * @return the shared registration.
+   */
+  public static Registration shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * getter for myUserList. The list is brought up to date with the file first.
+   *
+   * @return myUserList
+   */
+  public Map<String, User> getMyUserList() {
+    syncWithFile();
+    return myUserList;
+  }
+
+  /**
+   * Catches the directory up with changes made to the user file by another process. Nothing
+   * is read unless the file's size or modification time moved since it was last seen.
+   */
+  private synchronized void syncWithFile() {
+    final BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(myUserfilePath, BasicFileAttributes.class);
+    } catch (final NoSuchFileException e) {
+      return;
+    } catch (final IOException e) {
+      e.printStackTrace();
+      return;
+    }
+    final long modified = attributes.lastModifiedTime().toMillis();
+    if (attributes.size() == mySeenSize && modified == mySeenModified) {
+      return;
+    }
+    try {
+      if (attributes.size() > mySeenSize) {
+        myUserDirectory.refresh();
+      } else {
+        myUserDirectory.rebuild();
+      }
+      mySeenSize = attributes.size();
+      mySeenModified = modified;
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Records the current size and modification time of the user file as caught up.
+   */
+  private void noteFileSeen() {
+    try {
+      final BasicFileAttributes attributes =
+          Files.readAttributes(myUserfilePath, BasicFileAttributes.class);
+      mySeenSize = attributes.size();
+      mySeenModified = attributes.lastModifiedTime().toMillis();
+    } catch (final IOException e) {
+      mySeenSize = -1;
+    }
+  }
+
+  /**
+   * Verifies that the member is on the list.
+   *
+   * @param theUserName the name of the user.
+   * @param password the password created by the user.
+   * @return boolean
+   */
+  public boolean existingMemLogin(String theUserName, String password) {
+    boolean result = false;
+
+    if (login(theUserName, password)) {
+      result = true;
+    }
+
+    return result;
+  }
+
+  /**
+   * Verify Sign-in procedure.
+   *
+   * @param theUsername the users' name for sign-in
+   * @param thePassword password for sign in
+   * @return sign-in success
+   * @throws IllegalArgumentException if the user name or password is empty
+   */
+  public boolean login(final String theUsername, final String thePassword) {
+
+    Objects.requireNonNull(theUsername);
+    Objects.requireNonNull(thePassword);
+
+    if (theUsername.isEmpty() || thePassword.isEmpty()) {
+      throw new IllegalArgumentException(RentalError.MISSING_CREDENTIALS.getMessage());
+    }
+
+    User userInFile = getMyUserList().get(theUsername);
+
+    return userInFile != null && userInFile.getMyPassword().equals(thePassword);
+  }
+
+  /**
+   * Adds a user to the registered user list.
+   *
+   * @param theUser the user who is signing up or signing in.
+   * @return true/false returns if registration is successful; false if the user could not be
+   *         written to the user file, in which case the user is not registered
+   */
+  public synchronized boolean register(final User theUser) {
+    syncWithFile();
+    if (!FileLoader.writeUserToFile(myUserfileName, theUser)) {
+      return false;
+    }
+    try {
+      myUserDirectory.refresh();
+    } catch (final IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    noteFileSeen();
+
+    return true;
+  }
+
+  /**
+   * Empties the user list held in memory. It is read again from the user file the next time
+   * it is used.
+   */
+  public synchronized void clear() {
+    myUserDirectory.clear();
+    mySeenSize = -1;
+  }
+
+  public String getUserfileName() {
+    return myUserfileName;
+  }
+
+  /**
+   * Converts the Registered users as a list.
+   *
+   * @return the string representation of registration
+   */
+  public String toString() {
+    return "Registered UserList" + myUserList.toString();
+  }
+
+}
@@ -1,16 +1,9 @@
 package rentzsystemui;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import vehicles.AbstractVehicle;
+import vehicles.Fleet;
+import vehicles.VehicleRegistry;
 
 /**
  * This RentList class manages user rentals stored in the userandcurrentrentals.txt file,
@@ -21,17 +14,44 @@ import java.util.Scanner;
  * including adding new users and their rentals, removing rentals,
  * confirming user drop-offs, retrieving all rentals, and updating user rentals.</p>
  *
- *<p>The 'userandcurrentrentals.txt' file structure should follow a pattern of
- * 'username:rental1,rental2,rental3,...'.
+ *<p>The 'usersandcurrentrentals.dat' file holds one binary record per user with all of
+ * their rentals, see {@link RecordFormat}. Rents and drops are appended to a
+ * {@link RentalJournal} and folded back into the file when the journal is compacted.
+ * The static methods are views over a resident {@link RentalLedger}, so the files are
+ * only read once per process. Vehicles are named by their unit number, see
+ * {@link VehicleRegistry}; rentals recorded by name before vehicles had unit numbers are
+ * given to the last vehicle in the catalog with that name.</p>
  *
  * @author Ricardo Salas
  *
  */
 public class RentList {
 
-  /** Text file that holds users and their current rentals.*/
+  /** Record file that holds users and their current rentals.*/
   private static final String USERS_AND_CURRENT_RENTALS = "../rentz/src/"
-      + "RegistrationAndCurrentRentalList/usersandcurrentrentals.txt";
+      + "registrationandcurrentrentallist/usersandcurrentrentals.dat";
+
+  /** Journal file that holds the rents and drops made since the last snapshot. */
+  private static final String USERS_AND_CURRENT_RENTALS_JOURNAL = "../rentz/src/"
+      + "registrationandcurrentrentallist/usersandcurrentrentals-journal.dat";
+
+  /** Text file of users and rentals used before the binary record format. */
+  private static final String LEGACY_USERS_AND_CURRENT_RENTALS = "../rentz/src/"
+      + "registrationandcurrentrentallist/usersandcurrentrentals.txt";
+
+  /** Text journal used before the binary record format. */
+  private static final String LEGACY_USERS_AND_CURRENT_RENTALS_JOURNAL = "../rentz/src/"
+      + "registrationandcurrentrentallist/usersandcurrentrentals.journal";
+
+  /** Journal of rents and drops on top of usersandcurrentrentals.dat. */
+  private static final RentalJournal JOURNAL = new RentalJournal(
+      RecordFileTool.upgradeRentals(LEGACY_USERS_AND_CURRENT_RENTALS,
+          LEGACY_USERS_AND_CURRENT_RENTALS_JOURNAL, USERS_AND_CURRENT_RENTALS),
+      USERS_AND_CURRENT_RENTALS_JOURNAL,
+      name -> Fleet.shared().load().getLatestKey(name));
+
+  /** Resident view of the users and their rentals, loaded once per process. */
+  private static final RentalLedger LEDGER = new RentalLedger(JOURNAL);
 
   /**
    * Finds and adds a rental if user is found otherwise adds user
@@ -39,22 +59,10 @@ public class RentList {
    *
    * @param theUserName the string representation of the user.
    *
-   * @param myCurrentRental the currently rented.
+   * @param myCurrentRental the unit number of the currently rented.
    */
-  public static void findOrAddUser(String theUserName, String myCurrentRental) {
-    String filePath = USERS_AND_CURRENT_RENTALS;
-        
-    Map<String, String> userRentals = readUserRentalsFromFile(filePath);
-        
-    if (userRentals.containsKey(theUserName)) {
-      String rentals = userRentals.get(theUserName);
-      rentals += "," + myCurrentRental;
-      userRentals.put(theUserName, rentals);
-    } else {
-      userRentals.put(theUserName, myCurrentRental);
-    }
-        
-    writeUserRentalsToFile(filePath, userRentals);
+  public static void findOrAddUser(String theUserName, int myCurrentRental) {
+    LEDGER.rent(theUserName, myCurrentRental);
   }
   
   /**
@@ -62,30 +70,10 @@ public class RentList {
    *
    * @param theUserName The string representation of the user.
    *
-   * @param theRentalToRemove The chosen rental.
+   * @param theRentalToRemove The unit number of the chosen rental.
    */
-  public static void removeRental(String theUserName, String theRentalToRemove) {
-
-    String filePath = USERS_AND_CURRENT_RENTALS;
-
-    Map<String, String> userRentals = readUserRentalsFromFile(filePath);
-
-    if (userRentals.containsKey(theUserName)) {
-      String rentals = userRentals.get(theUserName);
-
-      if (rentals.equals(theRentalToRemove) || rentals.equals(theRentalToRemove + ",")) {
-        userRentals.remove(theUserName);
-        
-      } else {
-
-        // User exists, remove the specified rental
-        boolean theIsItLast = isItLast(theUserName, theRentalToRemove);
-        rentals = removeSubstring(rentals, theRentalToRemove, theIsItLast);
-        userRentals.put(theUserName, rentals);
-      }
-    }
-    // Write the updated map to the file
-    writeUserRentalsToFile(filePath, userRentals);
+  public static void removeRental(String theUserName, int theRentalToRemove) {
+    LEDGER.drop(theUserName, theRentalToRemove);
   }
 
   /**
@@ -96,117 +84,53 @@ public class RentList {
    *
    * @param theUserName The String identification of the user
    *
-   * @param theRentalToRemove The chosen rental.
+   * @param theRentalToRemove The unit number of the chosen rental.
    * 
    * @return boolean
    */
-  public static boolean isItLast(String theUserName, String theRentalToRemove) {
-    String filePath = USERS_AND_CURRENT_RENTALS;
-
-    Map<String, String> userRentals = readUserRentalsFromFile(filePath);
-        
-    String rentals = userRentals.get(theUserName);
-    if (rentals.endsWith(theRentalToRemove)) {
-      return true;
-    }
-    return false;
-  }
-    
-  private static String removeSubstring(String str, String substringToRemove, boolean isItLast) {
-    if (isItLast == false) {
-      return str.replace(substringToRemove + ",", "").replaceAll(",\\s*,", ",");
-    }
-    return str.replace(substringToRemove, "").replaceAll(",\\s*,", ",");
+  public static boolean isItLast(String theUserName, int theRentalToRemove) {
+    return LEDGER.isLast(theUserName, theRentalToRemove);
   }
-    
+  
   /**
-   * Method to read user rentals from a file.
+   * verifies whether the rental is under the current users name for dropping off rental.
    *
-   * @param filePath the path for usersandcurrentrentals.txt
-   * @return userRentals a map to use for adding, removing, and displaying users and their rentals.
+   * @param theCurrentUserName the current users identity
+   *
+   * @param theChoosenDropVehicle the unit number of the chosen rental.
+   * @return boolean 
    */
-  private static Map<String, String> readUserRentalsFromFile(String filePath) {
-    Map<String, String> userRentals = new HashMap<>();
-        
-    try (Scanner scanner = new Scanner(new File(filePath))) {
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        String[] parts = line.split(":");
-        userRentals.put(parts[0], parts[1]);
-      }
-    } catch (FileNotFoundException e) {
-      System.err.println("File not found: " + filePath);
-    }      
-    return userRentals;
+  public static boolean confirmDropUser(String theCurrentUserName, int theChoosenDropVehicle) {
+    return LEDGER.holds(theCurrentUserName, theChoosenDropVehicle);
   }
-    
-
+  
   /**
-   *  Writes user rentals to a file.
+   * Retrieves the user currently renting the vehicle.
    *
-   * @param filePath    The path for usersandcurrentrentals.txt
-   * @param userRentals Map where key is user and value are their rentals.
+   * @param theVehicle the unit number of the rental.
+   * @return the renter, or null if the vehicle is not rented.
    */
-  private static void writeUserRentalsToFile(String filePath, Map<String, String> userRentals) {
-    try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-      for (Map.Entry<String, String> entry : userRentals.entrySet()) {
-        writer.println(entry.getKey() + ":" + entry.getValue());
-      }
-    } catch (IOException e) {
-      System.err.println("Error writing to file: " + e.getMessage());
-    }
+  public static String getRenter(int theVehicle) {
+    return LEDGER.getRenter(theVehicle);
   }
-  
+
   /**
-   * verifies whether the rental is under the current users name for dropping off rental.
+   * Retrieves the current renters of the given vehicles.
    *
-   * @param theCurrentUserName the current users identity
-   *
-   * @param theChoosenDropVehicle the name identification of the chosen rental.
-   * @return boolean 
+   * @param theVehicles the unit numbers of the rentals.
+   * @return map where key is the unit number of a rented vehicle and value is its renter.
    */
-  public static boolean confirmDropUser(String theCurrentUserName, String theChoosenDropVehicle) {
-    String filePath = USERS_AND_CURRENT_RENTALS;
-        
-    try (Scanner scanner = new Scanner(new File(filePath))) {
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        String[] parts = line.split(":");
-        if (parts.length >= 2 && parts[0].equals(theCurrentUserName) 
-            && parts[1].contains(theChoosenDropVehicle)) {
-          return true;
-        }
-      }
-    } catch (FileNotFoundException e) {
-      System.err.println("File not found: " + filePath);
-    }
-    return false;
+  public static Map<Integer, String> getHolders(int[] theVehicles) {
+    return LEDGER.getHolders(theVehicles);
   }
-  
+
   /**
    * parses text accordingly to retrieve all rentals from all users usersandcurrentrentals.txt
    *
-   * @return allRentals a string array of rentals that are currently being used.
+   * @return allRentals the unit numbers of the rentals that are currently being used.
    */
-  public static String[] getAllRentals() {
-    String filePath = USERS_AND_CURRENT_RENTALS;
-
-    List<String> allRentals = new ArrayList<>();
-
-    try (Scanner scanner = new Scanner(new File(filePath))) {
-      while (scanner.hasNextLine()) {
-        String line = scanner.nextLine();
-        String[] parts = line.split(":");
-                
-        String[] rentals = parts[1].split(",");
-        allRentals.addAll(Arrays.asList(rentals));
-                
-      }
-    } catch (FileNotFoundException e) {
-      System.err.println("File not found: " + filePath);
-    }
-
-    return allRentals.toArray(new String[0]);
+  public static int[] getAllRentals() {
+    return LEDGER.getAllRentals();
   }
     
   /**
@@ -217,18 +141,15 @@ public class RentList {
    * @return rentals a string that contains a user and its rentals.
    */
   public static String updateUserCurrRentals(String theUserName) {
-    String filePath = USERS_AND_CURRENT_RENTALS;
-
-    String rentals = "";
-    Map<String, String> userRentals = readUserRentalsFromFile(filePath);
-
-    try (Scanner scanner = new Scanner(new File(filePath))) {
-      if (userRentals.containsKey(theUserName)) {
-        rentals = userRentals.get(theUserName);
+    final VehicleRegistry vehicles = Fleet.shared().getRegistry();
+    final StringBuilder rentals = new StringBuilder();
+    for (int unit : LEDGER.getRentals(theUserName)) {
+      if (rentals.length() > 0) {
+        rentals.append(FileLoader.SPLIT_TOKEN);
       }
-    } catch (Exception e) {
-      e.printStackTrace();
+      final AbstractVehicle vehicle = vehicles.get(unit);
+      rentals.append(vehicle == null ? "Unit" : vehicle.getMyName()).append(" #").append(unit);
     }
-    return rentals;
+    return rentals.toString();
   }
 }
@@ -0,0 +1,74 @@
+package rentzsystemui;
+
+/**
+ * The reasons a {@link RentalService} request can fail, each with a message fit to show the
+ * user.
+ *
+ * @author Ricardo Salas
+ *
+ */
+public enum RentalError {
+
+  /** No user name or no password was given. */
+  MISSING_CREDENTIALS("To login a username and password is required"),
+
+  /** The user name and password do not match a registered user. */
+  LOGIN_FAILED("Username or password is incorrect. If you are a new user please create an"
+               + " account."),
+
+  /** The user name is not registered. */
+  UNKNOWN_USER("There is no account with this username."),
+
+  /** The user name is already registered. */
+  USER_EXISTS("User already exists, enter different user name:"),
+
+  /** The password does not meet the requirements. */
+  WEAK_PASSWORD("create a new password \n"
+                + "Password must contain: \n"
+                + "at least 6 characters \n"
+                + "at least one digit \n"
+                + "at least one upper case character \n"
+                + "at least one lower case character \n"
+                + "at least one special character \n"),
+
+  /** No vehicle has the unit number. */
+  UNKNOWN_VEHICLE("This vehicle is not part of our fleet."),
+
+  /** The rental is not at least one day long. */
+  INVALID_DAYS("Invalid number of days"),
+
+  /** The rental would start before today. */
+  START_IN_PAST("A rental cannot start in the past."),
+
+  /** The vehicle is out with another renter today. */
+  VEHICLE_IN_USE("This vehicle is currently being Used. Give another one a try"),
+
+  /** The vehicle is reserved for some of the days. */
+  ALREADY_BOOKED("This vehicle is already booked for some of those days. Give another one a"
+                 + " try"),
+
+  /** The vehicle to drop off is not out. */
+  NOT_RENTED("Vehicle is not rented, this is out on the floor"),
+
+  /** The vehicle to drop off is out with another renter. */
+  RENTED_BY_OTHER("This vehicle is rented by someone else"),
+
+  /** The change could not be saved. */
+  NOT_SAVED("Your request could not be saved, kindly try again.");
+
+  /** The message shown to the user. */
+  private final String myMessage;
+
+  RentalError(final String theMessage) {
+    this.myMessage = theMessage;
+  }
+
+  /**
+   * Retrieves the message shown to the user.
+   *
+   * @return the message.
+   */
+  public String getMessage() {
+    return myMessage;
+  }
+}
@@ -0,0 +1,331 @@
+package rentzsystemui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.ToIntFunction;
+
+/**
+ * An append-only journal of rent and drop records that sits next to the
+ * usersandcurrentrentals.txt snapshot.
+ *
+ * <p>Every rent or drop is written as a single record at the end of the journal instead of
+ * rewriting the whole snapshot, so recording a rental costs one small sequential append no
+ * matter how many customers are on file. Once the journal holds enough records it is compacted:
+ * the current view is written out as a fresh snapshot and the journal starts over empty.</p>
+ *
+ * <p>Both files are in the binary {@link RecordFormat}. The current view is rebuilt by
+ * loading the snapshot, which holds one record per user with all of their rentals, and
+ * replaying the rent and drop records of the journal tail on top of it. Vehicles are named by
+ * their unit number. Records written before vehicles had unit numbers name the vehicle
+ * instead, and the name is turned into a unit number as they are replayed.</p>
+ *
+ * <p>Both files are written through {@link DurableFiles}. Compaction replaces the snapshot
+ * and then the journal atomically, and both start with a generation record. A journal is
+ * only replayed when its generation matches the snapshot's, so a crash between the two
+ * replacements never applies the same records twice. A record torn by a crash in the middle
+ * of an append is cut off the journal the first time it is replayed.</p>
+ *
+ * <p>Appends are handed to the {@link GroupCommitWriter}, so rents and drops made close
+ * together share one write and one fsync. Before the journal is replaced, the journal waits
+ * for its queued appends so none of them can land in the next generation.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class RentalJournal {
+
+  /** Number of journal records that triggers a compaction into the snapshot. */
+  public static final int COMPACTION_THRESHOLD = 256;
+
+  /** Path of the snapshot file. */
+  private final String mySnapshotPath;
+
+  /** Path of the journal file. */
+  private final String myJournalPath;
+
+  /** Finds the unit number of a vehicle named by a version 1 record, or -1. */
+  private final ToIntFunction<String> myLegacyUnits;
+
+  /** Number of records currently in the journal, or -1 until the journal has been read. */
+  private int myJournalRecords = -1;
+
+  /** Generation of the current snapshot, which the journal has to match. */
+  private long myGeneration;
+
+  /** Whether the journal on disk belongs to the current generation. */
+  private boolean myJournalCurrent;
+
+  /** The most recently queued append, every earlier one completes before it. */
+  private CompletableFuture<Void> myLastAppend = CompletableFuture.completedFuture(null);
+
+  /** Whether the files have been checked for a crash since the process started. */
+  private boolean myRecovered;
+
+  /**
+   * Receives the rentals found while replaying the snapshot and journal.
+   */
+  public interface RecordHandler {
+
+    /**
+     * Called for every rental held by a user, in snapshot and journal order.
+     *
+     * @param theUserName the name of the renter.
+     * @param theUnit the unit number of the rented vehicle.
+     */
+    void rented(String theUserName, int theUnit);
+
+    /**
+     * Called for every drop found in the journal.
+     *
+     * @param theUserName the name of the renter.
+     * @param theUnit the unit number of the dropped vehicle.
+     */
+    void dropped(String theUserName, int theUnit);
+  }
+
+  /**
+   * Creates a journal for the given snapshot.
+   *
+   * @param theSnapshotPath the path of the usersandcurrentrentals.txt snapshot.
+   * @param theJournalPath the path of the journal that records changes since the snapshot.
+   * @param theLegacyUnits finds the unit number of a vehicle named by a record written before
+   *        vehicles had unit numbers, or returns -1 if no vehicle has the name.
+   */
+  public RentalJournal(final String theSnapshotPath, final String theJournalPath,
+                       final ToIntFunction<String> theLegacyUnits) {
+    this.mySnapshotPath = theSnapshotPath;
+    this.myJournalPath = theJournalPath;
+    this.myLegacyUnits = theLegacyUnits;
+  }
+
+  /**
+   * Appends a rent record to the journal.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the rented vehicle.
+   * @return a future that completes once the record is durable.
+   */
+  public synchronized CompletableFuture<Void> appendRent(final String theUserName,
+                                                         final int theUnit) {
+    return append(RecordFormat.TAG_UNIT_RENT, theUserName, theUnit);
+  }
+
+  /**
+   * Appends a drop record to the journal.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the dropped vehicle.
+   * @return a future that completes once the record is durable.
+   */
+  public synchronized CompletableFuture<Void> appendDrop(final String theUserName,
+                                                         final int theUnit) {
+    return append(RecordFormat.TAG_UNIT_DROP, theUserName, theUnit);
+  }
+
+  private CompletableFuture<Void> append(final byte theOperation, final String theUserName,
+                                         final int theUnit) {
+    recover();
+    try {
+      if (!myJournalCurrent || !new File(myJournalPath).exists()) {
+        awaitAppends();
+        DurableFiles.replace(myJournalPath, start(RecordFormat.Kind.JOURNAL, myGeneration),
+                             DurableFiles.getPolicy());
+        myJournalCurrent = true;
+      }
+    } catch (final IOException e) {
+      System.err.println("Error writing to file: " + e.getMessage());
+    }
+    myLastAppend = GroupCommitWriter.getInstance().append(myJournalPath,
+        RecordFormat.unitChangeRecord(theOperation, theUserName, theUnit));
+    if (myJournalRecords >= 0) {
+      myJournalRecords++;
+    }
+    return myLastAppend;
+  }
+
+  /**
+   * Waits until every queued append has reached the journal.
+   */
+  private void awaitAppends() {
+    try {
+      myLastAppend.join();
+    } catch (final CompletionException e) {
+      System.err.println("Error writing to file: " + e.getCause().getMessage());
+    }
+  }
+
+  /**
+   * Determines whether the journal has grown past the compaction threshold.
+   *
+   * @return true if the journal should be compacted into the snapshot.
+   */
+  public synchronized boolean needsCompaction() {
+    if (myJournalRecords < 0) {
+      replay(new RecordHandler() {
+        @Override
+        public void rented(final String theUserName, final int theUnit) {
+        }
+
+        @Override
+        public void dropped(final String theUserName, final int theUnit) {
+        }
+      });
+    }
+    return myJournalRecords >= COMPACTION_THRESHOLD;
+  }
+
+  /**
+   * Replays the snapshot followed by the journal tail.
+   *
+   * @param theHandler receives every rental and drop in order.
+   */
+  public synchronized void replay(final RecordHandler theHandler) {
+    recover();
+    awaitAppends();
+    myGeneration = replaySnapshot(theHandler);
+    myJournalRecords = replayJournal(theHandler, myGeneration);
+  }
+
+  /**
+   * Repairs the files once per process after a possible crash.
+   */
+  private void recover() {
+    if (myRecovered) {
+      return;
+    }
+    myRecovered = true;
+    try {
+      RecordFormat.recover(mySnapshotPath);
+      RecordFormat.recover(myJournalPath);
+    } catch (final IOException e) {
+      System.err.println("Error recovering file: " + e.getMessage());
+    }
+  }
+
+  private long replaySnapshot(final RecordHandler theHandler) {
+    final long[] generation = {0};
+    try {
+      if (!new File(mySnapshotPath).exists()) {
+        System.err.println("File not found: " + mySnapshotPath);
+        return 0;
+      }
+      RecordFormat.read(mySnapshotPath, (offset, fields) -> {
+        if (fields.getTag() == RecordFormat.TAG_GENERATION) {
+          generation[0] = fields.readLong();
+        } else if (fields.getTag() == RecordFormat.TAG_UNIT_RENTALS) {
+          final String userName = fields.readString();
+          for (int i = fields.readInt(); i > 0; i--) {
+            theHandler.rented(userName, fields.readInt());
+          }
+        } else if (fields.getTag() == RecordFormat.TAG_RENTALS) {
+          final String userName = fields.readString();
+          for (int i = fields.readInt(); i > 0; i--) {
+            final int unit = legacyUnit(fields.readString());
+            if (unit >= 0) {
+              theHandler.rented(userName, unit);
+            }
+          }
+        }
+      });
+    } catch (final IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+    }
+    return generation[0];
+  }
+
+  private int replayJournal(final RecordHandler theHandler, final long theGeneration) {
+    final int[] records = {0};
+    myJournalCurrent = false;
+    if (!new File(myJournalPath).exists()) {
+      return 0;
+    }
+    try {
+      RecordFormat.read(myJournalPath, (offset, fields) -> {
+        if (fields.getTag() == RecordFormat.TAG_GENERATION) {
+          // A journal left over from before the last compaction is already in the snapshot.
+          myJournalCurrent = records[0] == 0 && fields.readLong() == theGeneration;
+          return;
+        }
+        if (!myJournalCurrent) {
+          return;
+        }
+        final byte tag = fields.getTag();
+        final String userName = fields.readString();
+        final boolean legacy = tag == RecordFormat.TAG_RENT || tag == RecordFormat.TAG_DROP;
+        final int unit = legacy ? legacyUnit(fields.readString()) : fields.readInt();
+        if (unit >= 0) {
+          if (tag == RecordFormat.TAG_UNIT_RENT || tag == RecordFormat.TAG_RENT) {
+            theHandler.rented(userName, unit);
+          } else if (tag == RecordFormat.TAG_UNIT_DROP || tag == RecordFormat.TAG_DROP) {
+            theHandler.dropped(userName, unit);
+          }
+        }
+        records[0]++;
+      });
+    } catch (final IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+    }
+    return records[0];
+  }
+
+  private int legacyUnit(final String theRental) {
+    if (theRental.isEmpty()) {
+      return -1;
+    }
+    final int unit = myLegacyUnits.applyAsInt(theRental);
+    if (unit < 0) {
+      System.err.println("Skipping rental of unknown vehicle " + theRental);
+    }
+    return unit;
+  }
+
+  /**
+   * Builds the start of a snapshot or journal: the file header and the generation record.
+   *
+   * @param theKind what the file holds.
+   * @param theGeneration the generation of the file.
+   * @return the encoded header and generation record.
+   */
+  private static byte[] start(final RecordFormat.Kind theKind, final long theGeneration) {
+    final ByteArrayOutputStream start = new ByteArrayOutputStream();
+    start.writeBytes(RecordFormat.header(theKind));
+    start.writeBytes(RecordFormat.generationRecord(theGeneration));
+    return start.toByteArray();
+  }
+
+  /**
+   * Writes the given view as the new snapshot and empties the journal.
+   *
+   * @param theUserRentals map where key is user and value are the unit numbers of their
+   *        rentals.
+   */
+  public synchronized void compact(
+      final Map<String, ? extends Collection<Integer>> theUserRentals) {
+    final long nextGeneration = myGeneration + 1;
+    final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+    snapshot.writeBytes(start(RecordFormat.Kind.RENTALS, nextGeneration));
+    for (Map.Entry<String, ? extends Collection<Integer>> entry : theUserRentals.entrySet()) {
+      snapshot.writeBytes(RecordFormat.unitRentalsRecord(entry.getKey(), entry.getValue()));
+    }
+    awaitAppends();
+    // The snapshot is replaced first. Until the journal is replaced too, the journal on disk
+    // still holds the older generation, so a crash in between never replays its records on
+    // top of the snapshot that already holds them, and neither file is ever left truncated.
+    try {
+      DurableFiles.replace(mySnapshotPath, snapshot.toByteArray(), DurableFiles.getPolicy());
+      myGeneration = nextGeneration;
+      myJournalCurrent = false;
+      DurableFiles.replace(myJournalPath, start(RecordFormat.Kind.JOURNAL, nextGeneration),
+                           DurableFiles.getPolicy());
+      myJournalCurrent = true;
+      myJournalRecords = 0;
+    } catch (final IOException e) {
+      System.err.println("Error writing to file: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package rentzsystemui;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A resident, in-memory view of the users and their current rentals.
+ *
+ * <p>The ledger loads usersandcurrentrentals.txt and its {@link RentalJournal} once, then keeps
+ * a map from each user to their rentals and a map from each rented vehicle to its renter.
+ * Every rent and drop updates both maps and is written through to the journal, so lookups
+ * never have to go back to disk.</p>
+ *
+ * <p>Vehicles are named by their unit number, which no two vehicles share, so a rental only
+ * ever matches the exact vehicle even when several vehicles have the same name. A user's
+ * rentals are held as an insertion-ordered set of unit numbers, so adding, removing and
+ * checking a rental are constant time.</p>
+ *
+ * <p>The vehicle to renter map is the reverse index of the user sets and the two are kept in
+ * step on every rent and drop, so drop authorization and "who has this vehicle" are
+ * answered with a single lookup.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class RentalLedger {
+
+  /** The journal every change is written through to. */
+  private final RentalJournal myJournal;
+
+  /** Map where key is user and value is the set of the unit numbers of their rentals. */
+  private final Map<String, Set<Integer>> myUserRentals = new HashMap<>();
+
+  /** Map where key is the unit number of a rented vehicle and value is the user renting it. */
+  private final Map<Integer, String> myVehicleRenters = new HashMap<>();
+
+  /** Whether the journal has been replayed into the maps yet. */
+  private boolean myLoaded;
+
+  /**
+   * Creates a ledger over the given journal. The journal is replayed on first use.
+   *
+   * @param theJournal the journal that holds the snapshot and the changes since.
+   */
+  public RentalLedger(final RentalJournal theJournal) {
+    this.myJournal = theJournal;
+  }
+
+  /**
+   * Records a new rental for the user.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the rented vehicle.
+   * @return a future that completes once the rental is durable in the journal.
+   */
+  public synchronized CompletableFuture<Void> rent(final String theUserName,
+                                                   final int theUnit) {
+    load();
+    applyRent(theUserName, theUnit);
+    final CompletableFuture<Void> durable = myJournal.appendRent(theUserName, theUnit);
+    compactIfNeeded();
+    return durable;
+  }
+
+  /**
+   * Removes a rental from the user.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the dropped vehicle.
+   * @return a future that completes once the drop is durable in the journal.
+   */
+  public synchronized CompletableFuture<Void> drop(final String theUserName,
+                                                   final int theUnit) {
+    load();
+    applyDrop(theUserName, theUnit);
+    final CompletableFuture<Void> durable = myJournal.appendDrop(theUserName, theUnit);
+    compactIfNeeded();
+    return durable;
+  }
+
+  /**
+   * Retrieves the rentals of the user.
+   *
+   * @param theUserName the name of the user.
+   * @return the unit numbers of the rentals of the user in the order they were rented, empty
+   *         if they have none.
+   */
+  public synchronized int[] getRentals(final String theUserName) {
+    load();
+    final Set<Integer> rentals = myUserRentals.get(theUserName);
+    return rentals == null ? new int[0] : toArray(rentals);
+  }
+
+  /**
+   * Determines whether the user currently holds the rental.
+   *
+   * @param theUserName the name of the user.
+   * @param theUnit the unit number of the vehicle to look for.
+   * @return true if the rental is under the user's name.
+   */
+  public synchronized boolean holds(final String theUserName, final int theUnit) {
+    load();
+    return theUserName != null && theUserName.equals(myVehicleRenters.get(theUnit));
+  }
+
+  /**
+   * Determines whether the rental is the last one listed for the user.
+   *
+   * @param theUserName the name of the user.
+   * @param theUnit the unit number of the vehicle to look for.
+   * @return true if the user's rentals end with the rental.
+   */
+  public synchronized boolean isLast(final String theUserName, final int theUnit) {
+    load();
+    final Set<Integer> rentals = myUserRentals.get(theUserName);
+    if (rentals == null || !rentals.contains(theUnit)) {
+      return false;
+    }
+    int last = -1;
+    for (int rental : rentals) {
+      last = rental;
+    }
+    return theUnit == last;
+  }
+
+  /**
+   * Retrieves every rental that is currently out.
+   *
+   * @return the unit numbers of the rentals of all users.
+   */
+  public synchronized int[] getAllRentals() {
+    load();
+    return toArray(myVehicleRenters.keySet());
+  }
+
+  /**
+   * Retrieves the user currently renting the vehicle.
+   *
+   * @param theUnit the unit number of the vehicle to look for.
+   * @return the renter, or null if the vehicle is not rented.
+   */
+  public synchronized String getRenter(final int theUnit) {
+    load();
+    return myVehicleRenters.get(theUnit);
+  }
+
+  /**
+   * Retrieves the current renters of the given vehicles, for the back office.
+   *
+   * @param theUnits the unit numbers of the vehicles to look for.
+   * @return map where key is the unit number of a rented vehicle and value is its renter.
+   *         Vehicles that are not rented are left out.
+   */
+  public synchronized Map<Integer, String> getHolders(final int[] theUnits) {
+    load();
+    final Map<Integer, String> holders = new HashMap<>();
+    for (int rental : theUnits) {
+      final String renter = myVehicleRenters.get(rental);
+      if (renter != null) {
+        holders.put(rental, renter);
+      }
+    }
+    return holders;
+  }
+
+  private void load() {
+    if (myLoaded) {
+      return;
+    }
+    myJournal.replay(new RentalJournal.RecordHandler() {
+      @Override
+      public void rented(final String theUserName, final int theUnit) {
+        applyRent(theUserName, theUnit);
+      }
+
+      @Override
+      public void dropped(final String theUserName, final int theUnit) {
+        applyDrop(theUserName, theUnit);
+      }
+    });
+    myLoaded = true;
+  }
+
+  private void compactIfNeeded() {
+    if (myJournal.needsCompaction()) {
+      myJournal.compact(myUserRentals);
+    }
+  }
+
+  private void applyRent(final String theUserName, final int theUnit) {
+    final String previousRenter = myVehicleRenters.put(theUnit, theUserName);
+    if (previousRenter != null && !previousRenter.equals(theUserName)) {
+      removeFromUser(previousRenter, theUnit);
+    }
+    myUserRentals.computeIfAbsent(theUserName, k -> new LinkedHashSet<>()).add(theUnit);
+  }
+
+  private void applyDrop(final String theUserName, final int theUnit) {
+    if (removeFromUser(theUserName, theUnit)) {
+      myVehicleRenters.remove(theUnit, theUserName);
+    }
+  }
+
+  private boolean removeFromUser(final String theUserName, final int theUnit) {
+    final Set<Integer> rentals = myUserRentals.get(theUserName);
+    if (rentals == null || !rentals.remove(theUnit)) {
+      return false;
+    }
+    if (rentals.isEmpty()) {
+      myUserRentals.remove(theUserName);
+    }
+    return true;
+  }
+
+  private static int[] toArray(final Collection<Integer> theUnits) {
+    final int[] units = new int[theUnits.size()];
+    int i = 0;
+    for (int unit : theUnits) {
+      units[i++] = unit;
+    }
+    return units;
+  }
+}
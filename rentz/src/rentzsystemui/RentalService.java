@@ -0,0 +1,379 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import vehicles.AbstractVehicle;
+import vehicles.Fleet;
+import vehicles.VehicleRegistry;
+
+/**
+ * The rental business of Rentz without any screen: logging in, signing up, quoting, renting
+ * and dropping off vehicles.
+ *
+ * <p>Every request answers with a {@link ServiceResult} that holds either what was asked for
+ * or the {@link RentalError} that stopped it, and never opens a dialog or waits for the user,
+ * so the service runs the same with or without a display. The Swing screens are one client
+ * of it: they ask the user for the details, call the service and show the result.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class RentalService {
+
+  /** Pattern of a password with a lower case character. */
+  private static final Pattern LOWER_CASE = Pattern.compile(".*[a-z].*");
+
+  /** Pattern of a password with an upper case character. */
+  private static final Pattern UPPER_CASE = Pattern.compile(".*[A-Z].*");
+
+  /** Pattern of a password with a digit. */
+  private static final Pattern DIGIT = Pattern.compile(".*[0-9].*");
+
+  /** Pattern of a password with a special character. */
+  private static final Pattern SYMBOL =
+      Pattern.compile(".*[`~!@#$%^&*()\\-_=+\\\\|\\[{\\]};:'\",<.>/?].*");
+
+  /** Fewest characters in a password. */
+  private static final int MIN_PASSWORD_LENGTH = 6;
+
+  /** The registered users. */
+  private final Registration myRegistration;
+
+  /** The fleet. */
+  private final VehicleRegistry myVehicles;
+
+  /** The epoch day the rentals starting that day were last picked up. */
+  private long myPickupDay = Long.MIN_VALUE;
+
+  /**
+   * Holds the service shared by the process, created on first use.
+   */
+  private static final class SharedHolder {
+
+    /** The service over the shared users and the fleet of the vehicle catalog. */
+    private static final RentalService INSTANCE =
+        new RentalService(Registration.shared(), Fleet.shared().load());
+  }
+
+  /**
+   * Creates a service over a set of users and a fleet. The vehicles the {@link RentList} has
+   * out with renters, from before the process started, are taken out of the fleet.
+   *
+   * @param theRegistration the registered users.
+   * @param theVehicles the fleet.
+   */
+  public RentalService(final Registration theRegistration, final VehicleRegistry theVehicles) {
+    this.myRegistration = Objects.requireNonNull(theRegistration);
+    this.myVehicles = Objects.requireNonNull(theVehicles);
+    for (int unit : RentList.getAllRentals()) {
+      final AbstractVehicle vehicle = myVehicles.get(unit);
+      if (vehicle != null) {
+        vehicle.tryRent();
+      }
+    }
+  }
+
+  /**
+   * Retrieves the service shared by the whole process, over the default user file and the
+   * fleet of the vehicle catalog, which is loaded if it was not yet.
+   *
+   * @return the shared service.
+   */
+  public static RentalService shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * Checks a user name and password.
+   *
+   * @param theUserName the user name.
+   * @param thePassword the password.
+   * @return the user, or MISSING_CREDENTIALS or LOGIN_FAILED.
+   */
+  public ServiceResult<User> login(final String theUserName, final String thePassword) {
+    if (isEmpty(theUserName) || isEmpty(thePassword)) {
+      return ServiceResult.fail(RentalError.MISSING_CREDENTIALS);
+    }
+    final User user = myRegistration.getMyUserList().get(theUserName);
+    if (user == null || !user.getMyPassword().equals(thePassword)) {
+      return ServiceResult.fail(RentalError.LOGIN_FAILED);
+    }
+    return ServiceResult.ok(user);
+  }
+
+  /**
+   * Signs up a new user.
+   *
+   * @param theUserName the user name.
+   * @param thePassword the password, which must meet the requirements of
+   *        {@link RentalError#WEAK_PASSWORD} and not hold the user name.
+   * @param theVip whether the user joins the premium membership.
+   * @return the new user, or MISSING_CREDENTIALS, USER_EXISTS, WEAK_PASSWORD or NOT_SAVED.
+   */
+  public ServiceResult<User> register(final String theUserName, final String thePassword,
+                                      final boolean theVip) {
+    if (isEmpty(theUserName) || isEmpty(thePassword)) {
+      return ServiceResult.fail(RentalError.MISSING_CREDENTIALS);
+    }
+    if (!isValidPassword(theUserName, thePassword)) {
+      return ServiceResult.fail(RentalError.WEAK_PASSWORD);
+    }
+    final User user = new User(theUserName, thePassword, theVip);
+    synchronized (myRegistration) {
+      if (myRegistration.getMyUserList().containsKey(theUserName)) {
+        return ServiceResult.fail(RentalError.USER_EXISTS);
+      }
+      if (!myRegistration.register(user)) {
+        return ServiceResult.fail(RentalError.NOT_SAVED);
+      }
+    }
+    return ServiceResult.ok(user);
+  }
+
+  /**
+   * Prices a rental without making a bill.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theNumDays the number of days.
+   * @param theVip whether the VIP discount is taken off.
+   * @return the price, or UNKNOWN_VEHICLE or INVALID_DAYS.
+   */
+  public ServiceResult<PriceBreakdown> quote(final int theUnit, final int theNumDays,
+                                             final boolean theVip) {
+    if (theNumDays <= 0) {
+      return ServiceResult.fail(RentalError.INVALID_DAYS);
+    }
+    final AbstractVehicle vehicle = myVehicles.get(theUnit);
+    if (vehicle == null) {
+      return ServiceResult.fail(RentalError.UNKNOWN_VEHICLE);
+    }
+    return ServiceResult.ok(PricingEngine.price(vehicle, theNumDays, theVip));
+  }
+
+  /**
+   * Rents a vehicle to a user under a new bill ID from the {@link BillIdAllocator}.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day of the rental, today or later.
+   * @param theNumDays the number of days.
+   * @return the bill, or the reason the vehicle could not be rented, see
+   *         {@link #rent(long, String, int, LocalDate, int)}; NOT_SAVED if no bill ID could
+   *         be had.
+   */
+  public ServiceResult<Bill> rent(final String theUserName, final int theUnit,
+                                  final LocalDate theFrom, final int theNumDays) {
+    final long billId;
+    try {
+      billId = BillIdAllocator.shared().next();
+    } catch (final UncheckedIOException | IllegalStateException e) {
+      System.err.println(e.getMessage());
+      return ServiceResult.fail(RentalError.NOT_SAVED);
+    }
+    return rent(billId, theUserName, theUnit, theFrom, theNumDays);
+  }
+
+  /**
+   * Rents a vehicle to a user. The vehicle is reserved in the {@link ReservationBook} for the
+   * days of the rental, and a rental that starts today also takes the vehicle out; a later
+   * rental takes it out once its first day comes, see {@link #startDueRentals()}. The rent
+   * waits until the bill is written to the {@link BillStore}.
+   *
+   * @param theBillId a unique ID for the bill.
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day of the rental, today or later.
+   * @param theNumDays the number of days.
+   * @return the bill, or INVALID_DAYS, START_IN_PAST, UNKNOWN_VEHICLE, UNKNOWN_USER,
+   *         VEHICLE_IN_USE, ALREADY_BOOKED, or NOT_SAVED if the bill could not be stored, in
+   *         which case nothing is rented.
+   */
+  public ServiceResult<Bill> rent(final long theBillId, final String theUserName,
+                                  final int theUnit, final LocalDate theFrom,
+                                  final int theNumDays) {
+    Objects.requireNonNull(theUserName);
+    Objects.requireNonNull(theFrom);
+
+    if (theNumDays <= 0) {
+      return ServiceResult.fail(RentalError.INVALID_DAYS);
+    }
+    final LocalDate today = LocalDate.now();
+    if (theFrom.isBefore(today)) {
+      return ServiceResult.fail(RentalError.START_IN_PAST);
+    }
+    final AbstractVehicle vehicle = myVehicles.get(theUnit);
+    if (vehicle == null) {
+      return ServiceResult.fail(RentalError.UNKNOWN_VEHICLE);
+    }
+    final User user = myRegistration.getMyUserList().get(theUserName);
+    if (user == null) {
+      return ServiceResult.fail(RentalError.UNKNOWN_USER);
+    }
+    startDueRentals();
+    final boolean startsToday = theFrom.equals(today);
+    if (startsToday && !vehicle.isRentable()) {
+      return ServiceResult.fail(RentalError.VEHICLE_IN_USE);
+    }
+    final ReservationBook book = ReservationBook.shared();
+    // The book is locked across reserving and taking the vehicle, as pickUp locks it across
+    // taking the vehicles of today's reservations, so a pickup never takes the vehicle of a
+    // reservation this rent is still about to give up.
+    synchronized (book) {
+      if (book.reserve(theUserName, theUnit, theFrom, theFrom.plusDays(theNumDays)) == null) {
+        return ServiceResult.fail(RentalError.ALREADY_BOOKED);
+      }
+      // A rental that starts today also takes the vehicle, which only one of several
+      // concurrent rents can do; the reservation is given up again if another rent got there
+      // first.
+      if (startsToday && !vehicle.tryRent()) {
+        book.end(theUnit, theFrom);
+        return ServiceResult.fail(RentalError.VEHICLE_IN_USE);
+      }
+    }
+    final Bill bill = new Bill(theBillId, user, vehicle, theFrom, theNumDays);
+    try {
+      BillStore.shared().issue(bill);
+    } catch (final IOException | IllegalArgumentException e) {
+      // Without its bill the rental is not made: the vehicle goes back as it was.
+      System.err.println("Error writing to file: " + e.getMessage());
+      book.end(theUnit, theFrom);
+      if (startsToday) {
+        vehicle.returnRental();
+      }
+      return ServiceResult.fail(RentalError.NOT_SAVED);
+    }
+    if (startsToday) {
+      RentList.findOrAddUser(theUserName, theUnit);
+    }
+    return ServiceResult.ok(bill);
+  }
+
+  /**
+   * Takes back a vehicle from its renter, so it can be rented out again from today.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the vehicle.
+   * @return the vehicle, or UNKNOWN_VEHICLE, NOT_RENTED or RENTED_BY_OTHER.
+   */
+  public ServiceResult<AbstractVehicle> drop(final String theUserName, final int theUnit) {
+    final AbstractVehicle vehicle = myVehicles.get(theUnit);
+    if (vehicle == null) {
+      return ServiceResult.fail(RentalError.UNKNOWN_VEHICLE);
+    }
+    startDueRentals();
+    if (vehicle.isRentable()) {
+      return ServiceResult.fail(RentalError.NOT_RENTED);
+    }
+    final LocalDate today = LocalDate.now();
+    final ReservationBook book = ReservationBook.shared();
+    // The vehicle is freed and its reservation ended under the lock pickUp takes, so a pickup
+    // never takes the vehicle out again for the reservation being dropped.
+    synchronized (book) {
+      if (!RentList.confirmDropUser(theUserName, theUnit)) {
+        return ServiceResult.fail(RentalError.RENTED_BY_OTHER);
+      }
+      if (!vehicle.returnRental()) {
+        return ServiceResult.fail(RentalError.NOT_RENTED);
+      }
+      RentList.removeRental(theUserName, theUnit);
+      final ReservationBook.Reservation reservation = book.getReservation(theUnit, today);
+      if (reservation != null && reservation.getUserName().equals(theUserName)) {
+        book.end(theUnit, today);
+      }
+    }
+    // The vehicle may be due to another renter whose rental starts today.
+    pickUp(today);
+    return ServiceResult.ok(vehicle);
+  }
+
+  /**
+   * Takes out the vehicles of the reserved rentals that have started, once a day. A rental
+   * that starts after the day it is made holds only a reservation until then; on its first
+   * day, or the first request after it, the vehicle is taken out and listed in the
+   * {@link RentList} under its renter, as a rental that starts today is at once. A vehicle
+   * still out with someone else is taken out when it is dropped off.
+   */
+  public void startDueRentals() {
+    final LocalDate today = LocalDate.now();
+    synchronized (this) {
+      if (myPickupDay == today.toEpochDay()) {
+        return;
+      }
+      myPickupDay = today.toEpochDay();
+    }
+    pickUp(today);
+  }
+
+  /**
+   * Returns a boolean on whether the rental is available today.
+   *
+   * @param theUnit the unit number of the rental.
+   * @return boolean
+   */
+  public boolean isRentable(final int theUnit) {
+    startDueRentals();
+    final AbstractVehicle vehicle = myVehicles.get(theUnit);
+    return vehicle != null && vehicle.isRentable();
+  }
+
+  /**
+   * Returns a boolean on whether the rental is free for a range of days.
+   *
+   * @param theUnit the unit number of the rental.
+   * @param theFrom the first day.
+   * @param theNumDays the number of days.
+   * @return boolean
+   */
+  public boolean isRentable(final int theUnit, final LocalDate theFrom, final int theNumDays) {
+    if (!theFrom.isAfter(LocalDate.now()) && !isRentable(theUnit)) {
+      return false;
+    }
+    return myVehicles.contains(theUnit)
+        && ReservationBook.shared().isFree(theUnit, theFrom, theFrom.plusDays(theNumDays));
+  }
+
+  /**
+   * Retrieves a bill from the {@link BillStore}.
+   *
+   * @param theBillId the bill ID.
+   * @return the bill, or null if no bill has the ID.
+   */
+  public StoredBill getBill(final long theBillId) {
+    return BillStore.shared().get(theBillId);
+  }
+
+  /**
+   * Verifies if a password meets the requirements.
+   *
+   * @param theUserName the name of the user, which the password may not hold.
+   * @param thePassword the password.
+   * @return true for a valid password.
+   */
+  static boolean isValidPassword(final String theUserName, final String thePassword) {
+    return thePassword.length() >= MIN_PASSWORD_LENGTH
+        && LOWER_CASE.matcher(thePassword).find()
+        && DIGIT.matcher(thePassword).find()
+        && UPPER_CASE.matcher(thePassword).find()
+        && SYMBOL.matcher(thePassword).find()
+        && !thePassword.contains(theUserName);
+  }
+
+  private void pickUp(final LocalDate theDay) {
+    final ReservationBook book = ReservationBook.shared();
+    synchronized (book) {
+      for (ReservationBook.Reservation reservation : book.getReservationsOn(theDay)) {
+        final AbstractVehicle vehicle = myVehicles.get(reservation.getUnit());
+        if (vehicle != null && vehicle.tryRent()) {
+          RentList.findOrAddUser(reservation.getUserName(), reservation.getUnit());
+        }
+      }
+    }
+  }
+
+  private static boolean isEmpty(final String theText) {
+    return theText == null || theText.isEmpty();
+  }
+}
@@ -27,11 +27,13 @@ public class RentzStart {
   }
   
   /** 
-   * Initialization of the Rentz program. This calls the RentzStart object and invokes
-   * its start method which in turn initializes the IntroAnimationController object.
+   * Initialization of the Rentz program. This starts loading the vehicle catalog in the
+   * background, then calls the RentzStart object and invokes its start method which in
+   * turn initializes the IntroAnimationController object.
    *
    */
   public static void main(String[] args) {
+    VehicleInfoGui.preloadVehicles();
     RentzStart rentz =  new RentzStart();
     rentz.start();
   }
@@ -0,0 +1,247 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Works out revenue and utilization reports from the bills in a {@link BillStore}.
+ *
+ * <p>The engine reads the segment files of the store directly instead of going through its
+ * indexes, since a report looks at every bill. The segments are cut into ranges of whole
+ * records at the bill offsets the store has indexed, a few thousand bills each, so a single
+ * large segment is split as well. Each range is scanned on its own and the partial reports
+ * are merged, so the ranges are read in parallel on the common fork-join pool when there is
+ * more than one.</p>
+ *
+ * <p>Usage:</p>
+ * <pre>
+ *   ReportingEngine 2026-01-01 2027-01-01
+ * </pre>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class ReportingEngine {
+
+  /** Number of bills in a range scanned by one task. */
+  private static final int BILLS_PER_RANGE = 4096;
+
+  /** The store the bills are read from. */
+  private final BillStore myStore;
+
+  /**
+   * Creates an engine that reports on the bills of the shared store.
+   */
+  public ReportingEngine() {
+    this(BillStore.shared());
+  }
+
+  /**
+   * Creates an engine that reports on the bills of a store.
+   *
+   * @param theStore the store.
+   */
+  public ReportingEngine(final BillStore theStore) {
+    this.myStore = Objects.requireNonNull(theStore);
+  }
+
+  /**
+   * Prints the report of a range of days.
+   *
+   * @param theArgs the first day and the day after the last day, as yyyy-MM-dd.
+   */
+  public static void main(final String[] theArgs) {
+    if (theArgs.length != 2) {
+      System.err.println("Usage: ReportingEngine <from> <to>");
+      System.exit(2);
+    }
+    try {
+      System.out.print(new ReportingEngine().report(LocalDate.parse(theArgs[0]),
+                                                    LocalDate.parse(theArgs[1])).toText());
+    } catch (final DateTimeParseException | UncheckedIOException e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Works out the report of a range of days. Bills still being written are waited for first.
+   *
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   * @return the report.
+   * @throws UncheckedIOException if a segment could not be read.
+   */
+  public RevenueReport report(final LocalDate theFrom, final LocalDate theTo) {
+    Objects.requireNonNull(theFrom);
+    Objects.requireNonNull(theTo);
+    myStore.flush();
+    final List<Path> segments = myStore.getSegments();
+    final List<int[]> offsets = myStore.getBillOffsets();
+    final List<Range> ranges = new ArrayList<>();
+    for (int i = 0; i < segments.size(); i++) {
+      split(segments.get(i), i < offsets.size() ? offsets.get(i) : new int[0], ranges);
+    }
+    final ScanRanges task = new ScanRanges(ranges, new Period(theFrom, theTo), 0,
+                                           ranges.size());
+    if (ranges.size() <= 1) {
+      return task.compute();
+    }
+    return ForkJoinPool.commonPool().invoke(task);
+  }
+
+  /**
+   * Maps a segment and cuts it into ranges of {@link #BILLS_PER_RANGE} bills. The last range
+   * runs to the end of the segment, so bills written after the offsets were taken are still
+   * read.
+   *
+   * @param theSegment the segment file.
+   * @param theOffsets the offsets of the bills in the segment, in ascending order.
+   * @param theRanges receives the ranges.
+   * @throws UncheckedIOException if the segment could not be read.
+   */
+  private static void split(final Path theSegment, final int[] theOffsets,
+                            final List<Range> theRanges) {
+    final MappedByteBuffer data;
+    try {
+      data = RecordFormat.map(theSegment.toString());
+      if (data == null || RecordFormat.readHeader(data) != RecordFormat.Kind.BILLS) {
+        return;
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    int from = RecordFormat.HEADER_SIZE;
+    for (int i = BILLS_PER_RANGE; i < theOffsets.length; i += BILLS_PER_RANGE) {
+      if (theOffsets[i] >= data.limit()) {
+        break;
+      }
+      if (theOffsets[i] > from) {
+        theRanges.add(new Range(data, from, theOffsets[i]));
+        from = theOffsets[i];
+      }
+    }
+    theRanges.add(new Range(data, from, data.limit()));
+  }
+
+  /**
+   * A run of whole records in a mapped segment.
+   */
+  private static final class Range {
+
+    /** The mapped segment. */
+    private final MappedByteBuffer myData;
+
+    /** The offset of the first record. */
+    private final int myFrom;
+
+    /** The offset just past the last record. */
+    private final int myTo;
+
+    private Range(final MappedByteBuffer theData, final int theFrom, final int theTo) {
+      this.myData = theData;
+      this.myFrom = theFrom;
+      this.myTo = theTo;
+    }
+  }
+
+  /**
+   * The range of days of a report, worked out once for every bill to be checked against.
+   */
+  private static final class Period {
+
+    /** The first day. */
+    private final LocalDate myFrom;
+
+    /** The day after the last day. */
+    private final LocalDate myTo;
+
+    /** The start of the first day, in milliseconds since the epoch. */
+    private final long myFromMillis;
+
+    /** The start of the day after the last day, in milliseconds since the epoch. */
+    private final long myToMillis;
+
+    private Period(final LocalDate theFrom, final LocalDate theTo) {
+      final ZoneId zone = ZoneId.systemDefault();
+      this.myFrom = theFrom;
+      this.myTo = theTo;
+      this.myFromMillis = theFrom.atStartOfDay(zone).toInstant().toEpochMilli();
+      this.myToMillis = theTo.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private void add(final RevenueReport theReport, final StoredBill theBill) {
+      if (theBill.getIssuedAt() >= myFromMillis && theBill.getIssuedAt() < myToMillis) {
+        theReport.addRevenue(theBill);
+      }
+      final long start = theBill.getFrom().toEpochDay();
+      final long overlap = Math.min(start + theBill.getPrice().getDays(), myTo.toEpochDay())
+                           - Math.max(start, myFrom.toEpochDay());
+      if (overlap > 0) {
+        theReport.addRentedDays(theBill.getUnit(), overlap);
+      }
+    }
+  }
+
+  /**
+   * Reports on a run of ranges, splitting it in two while it holds more than one.
+   */
+  private static final class ScanRanges extends RecursiveTask<RevenueReport> {
+
+    /** Serial version UID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The ranges of the segments. */
+    private final List<Range> myRanges;
+
+    /** The range of days of the report. */
+    private final Period myPeriod;
+
+    /** The first range of the run. */
+    private final int myFrom;
+
+    /** The range after the last range of the run. */
+    private final int myTo;
+
+    private ScanRanges(final List<Range> theRanges, final Period thePeriod,
+                       final int theFrom, final int theTo) {
+      this.myRanges = theRanges;
+      this.myPeriod = thePeriod;
+      this.myFrom = theFrom;
+      this.myTo = theTo;
+    }
+
+    @Override
+    protected RevenueReport compute() {
+      if (myTo - myFrom > 1) {
+        final int middle = (myFrom + myTo) >>> 1;
+        final ScanRanges second = new ScanRanges(myRanges, myPeriod, middle, myTo);
+        second.fork();
+        final RevenueReport report = new ScanRanges(myRanges, myPeriod, myFrom, middle)
+            .compute();
+        report.merge(second.join());
+        return report;
+      }
+      final RevenueReport report = new RevenueReport(myPeriod.myFrom, myPeriod.myTo);
+      if (myTo > myFrom) {
+        final Range range = myRanges.get(myFrom);
+        RecordFormat.scan(range.myData, range.myFrom, range.myTo, (offset, fields) -> {
+          if (fields.getTag() == RecordFormat.TAG_BILL) {
+            myPeriod.add(report, RecordFormat.readBill(fields));
+          }
+        });
+      }
+      return report;
+    }
+  }
+}
@@ -0,0 +1,440 @@
+package rentzsystemui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import vehicles.Fleet;
+import vehicles.FleetCalendar;
+import vehicles.VehicleRegistry;
+
+/**
+ * The reservations of every vehicle, each for a range of days.
+ *
+ * <p>A reservation holds a vehicle from its first day up to, but not including, its end day.
+ * The reservations of a vehicle never overlap, so each vehicle keeps them in a
+ * {@link TreeMap} keyed by their first day. Whether a vehicle is free for a range is then
+ * decided by the one reservation that starts last before the range ends, which the tree finds
+ * in logarithmic time.</p>
+ *
+ * <p>The reservations are kept in reservations.dat in the binary {@link RecordFormat}: one
+ * record per reservation made, and one per reservation ended early. The file is read once per
+ * process and new records are appended through the {@link GroupCommitWriter}. Whenever the
+ * file has doubled since it was last written whole, it is rewritten with only the
+ * reservations that have not ended yet, and the ended ones are forgotten.</p>
+ *
+ * <p>A {@link FleetCalendar} given to {@link #track(FleetCalendar)} is kept up to date with
+ * every reservation made or ended, for the day-by-day questions the book is slow at.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class ReservationBook {
+
+  /** Record file that holds the reservations. */
+  private static final String RESERVATIONS = "../rentz/src/"
+      + "registrationandcurrentrentallist/reservations.dat";
+
+  /** Fewest records in the file before it is rewritten. */
+  public static final int COMPACTION_THRESHOLD = 256;
+
+  /** Path of the reservation file. */
+  private final String myFile;
+
+  /** The reservations of each vehicle by unit number, keyed by their first day. */
+  private final Map<Integer, TreeMap<Long, Reservation>> myReservations = new HashMap<>();
+
+  /** Number of records in the file. */
+  private int myRecords;
+
+  /** Number of records in the file that triggers the next rewrite. */
+  private int myNextCompaction = COMPACTION_THRESHOLD;
+
+  /** Whether the file has been read yet. */
+  private boolean myLoaded;
+
+  /** The calendars kept up to date with the reservations. */
+  private final List<FleetCalendar> myCalendars = new ArrayList<>();
+
+  /** The most recently queued append, every earlier one completes before it. */
+  private CompletableFuture<Void> myLastAppend = CompletableFuture.completedFuture(null);
+
+  /**
+   * Holds the book shared by the process, created on first use.
+   */
+  private static final class SharedHolder {
+
+    /** The book for the default reservation file. */
+    private static final ReservationBook INSTANCE = new ReservationBook(RESERVATIONS);
+
+    static {
+      INSTANCE.track(Fleet.shared().getRegistry().getCalendar());
+    }
+  }
+
+  /**
+   * A vehicle held by a user for a range of days.
+   */
+  public static final class Reservation {
+
+    /** The name of the renter. */
+    private final String myUserName;
+
+    /** The unit number of the vehicle. */
+    private final int myUnit;
+
+    /** The first day, counted from the epoch. */
+    private final long myFrom;
+
+    /** The day after the last day, counted from the epoch. */
+    private final long myTo;
+
+    private Reservation(final String theUserName, final int theUnit, final long theFrom,
+                        final long theTo) {
+      this.myUserName = theUserName;
+      this.myUnit = theUnit;
+      this.myFrom = theFrom;
+      this.myTo = theTo;
+    }
+
+    /**
+     * Retrieves the renter.
+     *
+     * @return the name of the renter.
+     */
+    public String getUserName() {
+      return myUserName;
+    }
+
+    /**
+     * Retrieves the vehicle.
+     *
+     * @return the unit number of the vehicle.
+     */
+    public int getUnit() {
+      return myUnit;
+    }
+
+    /**
+     * Retrieves the first day.
+     *
+     * @return the first day of the reservation.
+     */
+    public LocalDate getFrom() {
+      return LocalDate.ofEpochDay(myFrom);
+    }
+
+    /**
+     * Retrieves the end day.
+     *
+     * @return the day after the last day of the reservation.
+     */
+    public LocalDate getTo() {
+      return LocalDate.ofEpochDay(myTo);
+    }
+
+    @Override
+    public String toString() {
+      return myUserName + " #" + myUnit + " " + getFrom() + " to " + getTo();
+    }
+  }
+
+  /**
+   * Creates a book over the given file. The file is read on first use.
+   *
+   * @param theFile the path of the reservation file.
+   */
+  public ReservationBook(final String theFile) {
+    this.myFile = theFile;
+  }
+
+  /**
+   * Retrieves the book of the default reservation file shared by the whole process. It keeps
+   * the calendar of the shared {@link Fleet} up to date.
+   *
+   * @return the shared book.
+   */
+  public static ReservationBook shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * Reserves a vehicle if it is free for the whole range.
+   *
+   * @param theUserName the name of the renter.
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   * @return the reservation, or null if the vehicle is already reserved for part of the range.
+   * @throws IllegalArgumentException if the range holds no day.
+   */
+  public synchronized Reservation reserve(final String theUserName, final int theUnit,
+                                          final LocalDate theFrom, final LocalDate theTo) {
+    final long from = theFrom.toEpochDay();
+    final long to = theTo.toEpochDay();
+    if (to <= from) {
+      throw new IllegalArgumentException("A reservation must end after it starts");
+    }
+    load();
+    if (!isFree(myReservations.get(theUnit), from, to)) {
+      return null;
+    }
+    final Reservation reservation = new Reservation(theUserName, theUnit, from, to);
+    add(reservation);
+    for (FleetCalendar calendar : myCalendars) {
+      calendar.book(theUnit, theFrom, theTo);
+    }
+    append(RecordFormat.reservationRecord(theUserName, theUnit, from, to));
+    compactIfNeeded();
+    return reservation;
+  }
+
+  /**
+   * Ends the reservation of a vehicle that covers a day, so the vehicle is free from that day
+   * on. A reservation that starts on that day is removed.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theDay the day the vehicle is free again.
+   * @return true if a reservation covered the day.
+   */
+  public synchronized boolean end(final int theUnit, final LocalDate theDay) {
+    load();
+    final long day = theDay.toEpochDay();
+    final TreeMap<Long, Reservation> reservations = myReservations.get(theUnit);
+    final Reservation covering = covering(reservations, day);
+    if (covering == null) {
+      return false;
+    }
+    final long to = Math.max(covering.myFrom, day);
+    apply(theUnit, covering.myFrom, to);
+    for (FleetCalendar calendar : myCalendars) {
+      calendar.release(theUnit, LocalDate.ofEpochDay(to), covering.getTo());
+    }
+    append(RecordFormat.reservationEndRecord(theUnit, covering.myFrom, to));
+    compactIfNeeded();
+    return true;
+  }
+
+  /**
+   * Determines whether a vehicle is free for a whole range.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   * @return true if no reservation of the vehicle holds any day of the range.
+   */
+  public synchronized boolean isFree(final int theUnit, final LocalDate theFrom,
+                                     final LocalDate theTo) {
+    load();
+    return isFree(myReservations.get(theUnit), theFrom.toEpochDay(), theTo.toEpochDay());
+  }
+
+  /**
+   * Finds the vehicles of a category that are free for a whole range.
+   *
+   * @param theCategory the vehicles to look at.
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   * @return the unit numbers of the free vehicles, in category order.
+   */
+  public synchronized int[] findFree(final VehicleRegistry.Category theCategory,
+                                     final LocalDate theFrom, final LocalDate theTo) {
+    load();
+    final long from = theFrom.toEpochDay();
+    final long to = theTo.toEpochDay();
+    final int[] free = new int[theCategory.size()];
+    int found = 0;
+    for (int i = 0; i < theCategory.size(); i++) {
+      if (isFree(myReservations.get(theCategory.getKey(i)), from, to)) {
+        free[found++] = theCategory.getKey(i);
+      }
+    }
+    return Arrays.copyOf(free, found);
+  }
+
+  /**
+   * Retrieves the reservation of a vehicle that covers a day.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theDay the day.
+   * @return the reservation, or null if the vehicle is free that day.
+   */
+  public synchronized Reservation getReservation(final int theUnit, final LocalDate theDay) {
+    load();
+    return covering(myReservations.get(theUnit), theDay.toEpochDay());
+  }
+
+  /**
+   * Retrieves every reservation that covers a day.
+   *
+   * @param theDay the day.
+   * @return the reservations, one per vehicle reserved that day.
+   */
+  public synchronized List<Reservation> getReservationsOn(final LocalDate theDay) {
+    load();
+    final long day = theDay.toEpochDay();
+    final List<Reservation> covering = new ArrayList<>();
+    for (TreeMap<Long, Reservation> reservations : myReservations.values()) {
+      final Reservation reservation = covering(reservations, day);
+      if (reservation != null) {
+        covering.add(reservation);
+      }
+    }
+    return covering;
+  }
+
+  /**
+   * Retrieves every reservation of a vehicle.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @return the reservations in order of their first day.
+   */
+  public synchronized List<Reservation> getReservations(final int theUnit) {
+    load();
+    final TreeMap<Long, Reservation> reservations = myReservations.get(theUnit);
+    return reservations == null ? new ArrayList<>() : new ArrayList<>(reservations.values());
+  }
+
+  /**
+   * Books every reservation into a calendar and keeps the calendar up to date from then on.
+   *
+   * @param theCalendar the calendar of the fleet.
+   */
+  public synchronized void track(final FleetCalendar theCalendar) {
+    load();
+    if (!myCalendars.contains(theCalendar)) {
+      myCalendars.add(theCalendar);
+    }
+    theCalendar.setSource(this::fill);
+  }
+
+  private synchronized void fill(final FleetCalendar theCalendar, final LocalDate theFrom,
+                                 final LocalDate theTo) {
+    load();
+    final long from = theFrom.toEpochDay();
+    final long to = theTo.toEpochDay();
+    for (TreeMap<Long, Reservation> reservations : myReservations.values()) {
+      for (Reservation reservation : reservations.headMap(to, false).values()) {
+        if (reservation.myTo > from) {
+          theCalendar.book(reservation.myUnit, reservation.getFrom(), reservation.getTo());
+        }
+      }
+    }
+  }
+
+  private static boolean isFree(final TreeMap<Long, Reservation> theReservations,
+                                final long theFrom, final long theTo) {
+    if (theReservations == null) {
+      return true;
+    }
+    // Reservations do not overlap, so only the last one starting before the range ends can
+    // reach into it.
+    final Map.Entry<Long, Reservation> before = theReservations.lowerEntry(theTo);
+    return before == null || before.getValue().myTo <= theFrom;
+  }
+
+  private static Reservation covering(final TreeMap<Long, Reservation> theReservations,
+                                      final long theDay) {
+    if (theReservations == null) {
+      return null;
+    }
+    final Map.Entry<Long, Reservation> entry = theReservations.floorEntry(theDay);
+    return entry == null || entry.getValue().myTo <= theDay ? null : entry.getValue();
+  }
+
+  private void add(final Reservation theReservation) {
+    myReservations.computeIfAbsent(theReservation.myUnit, k -> new TreeMap<>())
+                  .put(theReservation.myFrom, theReservation);
+  }
+
+  private void apply(final int theUnit, final long theFrom, final long theTo) {
+    final TreeMap<Long, Reservation> reservations = myReservations.get(theUnit);
+    final Reservation reservation = reservations == null ? null : reservations.get(theFrom);
+    if (reservation == null) {
+      return;
+    }
+    if (theTo <= theFrom) {
+      reservations.remove(theFrom);
+      if (reservations.isEmpty()) {
+        myReservations.remove(theUnit);
+      }
+    } else {
+      reservations.put(theFrom, new Reservation(reservation.myUserName, theUnit, theFrom,
+                                                Math.min(theTo, reservation.myTo)));
+    }
+  }
+
+  private void load() {
+    if (myLoaded) {
+      return;
+    }
+    myLoaded = true;
+    try {
+      RecordFormat.recover(myFile);
+      RecordFormat.read(myFile, (offset, fields) -> {
+        if (fields.getTag() == RecordFormat.TAG_RESERVE) {
+          final String userName = fields.readString();
+          add(new Reservation(userName, fields.readInt(), fields.readLong(), fields.readLong()));
+        } else if (fields.getTag() == RecordFormat.TAG_RESERVE_END) {
+          apply(fields.readInt(), fields.readLong(), fields.readLong());
+        }
+        myRecords++;
+      });
+    } catch (final IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+    }
+  }
+
+  private void append(final byte[] theRecord) {
+    try {
+      RecordFormat.ensureHeader(myFile, RecordFormat.Kind.RESERVATIONS);
+    } catch (final IOException e) {
+      System.err.println("Error writing to file: " + e.getMessage());
+    }
+    myLastAppend = GroupCommitWriter.getInstance().append(myFile, theRecord);
+    myRecords++;
+  }
+
+  /**
+   * Drops the reservations that have ended and rewrites the file with the rest, once the file
+   * has grown to twice what the last rewrite left.
+   */
+  private void compactIfNeeded() {
+    if (myRecords < myNextCompaction) {
+      return;
+    }
+    final long today = LocalDate.now().toEpochDay();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes(RecordFormat.header(RecordFormat.Kind.RESERVATIONS));
+    int kept = 0;
+    for (TreeMap<Long, Reservation> reservations : myReservations.values()) {
+      reservations.headMap(today, true).values()
+                  .removeIf(reservation -> reservation.myTo <= today);
+      for (Reservation reservation : reservations.values()) {
+        out.writeBytes(RecordFormat.reservationRecord(reservation.myUserName,
+            reservation.myUnit, reservation.myFrom, reservation.myTo));
+        kept++;
+      }
+    }
+    myReservations.values().removeIf(TreeMap::isEmpty);
+    myNextCompaction = Math.max(COMPACTION_THRESHOLD, 2 * kept);
+    try {
+      myLastAppend.join();
+    } catch (final CompletionException e) {
+      System.err.println("Error writing to file: " + e.getCause().getMessage());
+    }
+    try {
+      DurableFiles.replace(myFile, out.toByteArray(), DurableFiles.getPolicy());
+      myRecords = kept;
+    } catch (final IOException e) {
+      System.err.println("Error writing to file: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package rentzsystemui;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The revenue and utilization of the fleet over a range of days, as worked out by the
+ * {@link ReportingEngine}.
+ *
+ * <p>The revenue figures count the bills issued in the range. Utilization counts the rental
+ * days that fall in the range, whenever their bill was issued, so a rental booked before the
+ * range still counts the days it takes up. All amounts are in units of
+ * {@link PricingEngine}.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class RevenueReport {
+
+  /** Index of the number of bills in the tallies of a vehicle type. */
+  private static final int BILLS = 0;
+
+  /** Index of the revenue in the tallies of a vehicle type. */
+  private static final int REVENUE = 1;
+
+  /** The first day of the report. */
+  private final LocalDate myFrom;
+
+  /** The day after the last day of the report. */
+  private final LocalDate myTo;
+
+  /** Number of bills issued. */
+  private long myBills;
+
+  /** Number of bills issued to VIP renters. */
+  private long myVipBills;
+
+  /** Sum of the subtotals. */
+  private long mySubtotal;
+
+  /** Sum of the insurance charged. */
+  private long myInsurance;
+
+  /** Sum of the VIP discounts given. */
+  private long myVipDiscount;
+
+  /** Sum of the tax charged. */
+  private long myTax;
+
+  /** Sum of the totals. */
+  private long myTotal;
+
+  /** Sum of the totals of the bills of VIP renters. */
+  private long myVipTotal;
+
+  /** The number of bills and the revenue of each vehicle type. */
+  private final Map<String, long[]> myByType = new HashMap<>();
+
+  /** The rental days of each vehicle that fall in the report, by unit number. */
+  private final Map<Integer, Long> myRentedDays = new HashMap<>();
+
+  /**
+   * Creates an empty report.
+   *
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   */
+  RevenueReport(final LocalDate theFrom, final LocalDate theTo) {
+    this.myFrom = theFrom;
+    this.myTo = theTo;
+  }
+
+  /**
+   * Counts the revenue of a bill issued in the report.
+   *
+   * @param theBill the bill.
+   */
+  void addRevenue(final StoredBill theBill) {
+    final PriceBreakdown price = theBill.getPrice();
+    myBills++;
+    mySubtotal += price.getSubtotal();
+    myInsurance += price.getInsurance();
+    myVipDiscount += price.getVipDiscount();
+    myTax += price.getTax();
+    myTotal += price.getTotal();
+    if (theBill.isVip()) {
+      myVipBills++;
+      myVipTotal += price.getTotal();
+    }
+    final long[] type = myByType.computeIfAbsent(theBill.getVehicleType(), k -> new long[2]);
+    type[BILLS]++;
+    type[REVENUE] += price.getTotal();
+  }
+
+  /**
+   * Counts the rental days of a vehicle that fall in the report.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theDays the number of days.
+   */
+  void addRentedDays(final int theUnit, final long theDays) {
+    myRentedDays.merge(theUnit, theDays, Long::sum);
+  }
+
+  /**
+   * Adds another report over the same days into this one.
+   *
+   * @param theOther the report of other bills.
+   */
+  void merge(final RevenueReport theOther) {
+    myBills += theOther.myBills;
+    myVipBills += theOther.myVipBills;
+    mySubtotal += theOther.mySubtotal;
+    myInsurance += theOther.myInsurance;
+    myVipDiscount += theOther.myVipDiscount;
+    myTax += theOther.myTax;
+    myTotal += theOther.myTotal;
+    myVipTotal += theOther.myVipTotal;
+    for (Map.Entry<String, long[]> entry : theOther.myByType.entrySet()) {
+      final long[] type = myByType.computeIfAbsent(entry.getKey(), k -> new long[2]);
+      type[BILLS] += entry.getValue()[BILLS];
+      type[REVENUE] += entry.getValue()[REVENUE];
+    }
+    theOther.myRentedDays.forEach(this::addRentedDays);
+  }
+
+  /**
+   * Retrieves the first day of the report.
+   *
+   * @return the first day.
+   */
+  public LocalDate getFrom() {
+    return myFrom;
+  }
+
+  /**
+   * Retrieves the day after the last day of the report.
+   *
+   * @return the end of the report.
+   */
+  public LocalDate getTo() {
+    return myTo;
+  }
+
+  /**
+   * Retrieves the number of days in the report.
+   *
+   * @return the number of days.
+   */
+  public long getDays() {
+    return Math.max(0, ChronoUnit.DAYS.between(myFrom, myTo));
+  }
+
+  /**
+   * Retrieves the number of bills issued.
+   *
+   * @return the number of bills.
+   */
+  public long getBills() {
+    return myBills;
+  }
+
+  /**
+   * Retrieves the number of bills issued to VIP renters.
+   *
+   * @return the number of VIP bills.
+   */
+  public long getVipBills() {
+    return myVipBills;
+  }
+
+  /**
+   * Retrieves the sum of the subtotals, the daily rates times the days.
+   *
+   * @return the subtotal.
+   */
+  public long getSubtotal() {
+    return mySubtotal;
+  }
+
+  /**
+   * Retrieves the insurance charged.
+   *
+   * @return the insurance.
+   */
+  public long getInsurance() {
+    return myInsurance;
+  }
+
+  /**
+   * Retrieves the VIP discounts given.
+   *
+   * @return the discounts.
+   */
+  public long getVipDiscount() {
+    return myVipDiscount;
+  }
+
+  /**
+   * Retrieves the tax charged.
+   *
+   * @return the tax.
+   */
+  public long getTax() {
+    return myTax;
+  }
+
+  /**
+   * Retrieves the revenue, the sum of the totals of the bills.
+   *
+   * @return the revenue.
+   */
+  public long getRevenue() {
+    return myTotal;
+  }
+
+  /**
+   * Retrieves the revenue from VIP renters.
+   *
+   * @return the VIP revenue.
+   */
+  public long getVipRevenue() {
+    return myVipTotal;
+  }
+
+  /**
+   * Retrieves the revenue from regular renters.
+   *
+   * @return the regular revenue.
+   */
+  public long getRegularRevenue() {
+    return myTotal - myVipTotal;
+  }
+
+  /**
+   * Retrieves the revenue of each vehicle type.
+   *
+   * @return the revenue by the simple class name of the vehicles, sorted by name.
+   */
+  public Map<String, Long> getRevenueByType() {
+    return byType(REVENUE);
+  }
+
+  /**
+   * Retrieves the number of bills of each vehicle type.
+   *
+   * @return the number of bills by the simple class name of the vehicles, sorted by name.
+   */
+  public Map<String, Long> getBillsByType() {
+    return byType(BILLS);
+  }
+
+  /**
+   * Retrieves the rental days of each vehicle that fall in the report.
+   *
+   * @return the number of days by unit number, sorted by unit number.
+   */
+  public Map<Integer, Long> getRentedDays() {
+    return Collections.unmodifiableMap(new TreeMap<>(myRentedDays));
+  }
+
+  /**
+   * Retrieves the share of the days of the report a vehicle was rented.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @return the rented days divided by the days of the report, zero if it was never rented.
+   */
+  public double getUtilization(final int theUnit) {
+    final long days = getDays();
+    return days == 0 ? 0 : myRentedDays.getOrDefault(theUnit, 0L) / (double) days;
+  }
+
+  /**
+   * Lays out the report as text.
+   *
+   * @return the report.
+   */
+  public String toText() {
+    final StringBuilder text = new StringBuilder();
+    text.append("Report from ").append(myFrom).append(" to ").append(myTo.minusDays(1))
+        .append(System.lineSeparator());
+    line(text, "Bills", Long.toString(myBills));
+    line(text, "Subtotal", CurrencyFormat.format(mySubtotal));
+    line(text, "Insurance", CurrencyFormat.format(myInsurance));
+    line(text, "VIP discount", CurrencyFormat.format(myVipDiscount));
+    line(text, "Tax", CurrencyFormat.format(myTax));
+    line(text, "Revenue", CurrencyFormat.format(myTotal));
+    line(text, "  VIP", CurrencyFormat.format(myVipTotal));
+    line(text, "  Regular", CurrencyFormat.format(getRegularRevenue()));
+    text.append("Revenue by vehicle type").append(System.lineSeparator());
+    final Map<String, Long> bills = getBillsByType();
+    for (Map.Entry<String, Long> type : getRevenueByType().entrySet()) {
+      line(text, "  " + type.getKey(), CurrencyFormat.format(type.getValue()) + " ("
+           + bills.get(type.getKey()) + " bills)");
+    }
+    text.append("Utilization by unit").append(System.lineSeparator());
+    for (Map.Entry<Integer, Long> unit : getRentedDays().entrySet()) {
+      line(text, "  " + unit.getKey(), String.format("%.1f%% (%d days)",
+           100 * getUtilization(unit.getKey()), unit.getValue()));
+    }
+    return text.toString();
+  }
+
+  private Map<String, Long> byType(final int theIndex) {
+    final Map<String, Long> result = new TreeMap<>();
+    for (Map.Entry<String, long[]> entry : myByType.entrySet()) {
+      result.put(entry.getKey(), entry.getValue()[theIndex]);
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  private static void line(final StringBuilder theText, final String theLabel,
+                           final String theValue) {
+    theText.append(String.format("%-24s%s", theLabel, theValue)).append(System.lineSeparator());
+  }
+}
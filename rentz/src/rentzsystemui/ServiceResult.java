@@ -0,0 +1,92 @@
+package rentzsystemui;
+
+import java.util.Objects;
+
+/**
+ * The outcome of a {@link RentalService} request: either the value asked for, or the reason
+ * the request failed.
+ *
+ * @param <T> the type of the value.
+ * @author Ricardo Salas
+ *
+ */
+public final class ServiceResult<T> {
+
+  /** The value, null for a failure. */
+  private final T myValue;
+
+  /** The reason of a failure, null for a success. */
+  private final RentalError myError;
+
+  private ServiceResult(final T theValue, final RentalError theError) {
+    this.myValue = theValue;
+    this.myError = theError;
+  }
+
+  /**
+   * Creates the result of a request that succeeded.
+   *
+   * @param <T> the type of the value.
+   * @param theValue the value.
+   * @return the result.
+   */
+  public static <T> ServiceResult<T> ok(final T theValue) {
+    return new ServiceResult<>(theValue, null);
+  }
+
+  /**
+   * Creates the result of a request that failed.
+   *
+   * @param <T> the type of the value the request would have given.
+   * @param theError the reason.
+   * @return the result.
+   */
+  public static <T> ServiceResult<T> fail(final RentalError theError) {
+    return new ServiceResult<>(null, Objects.requireNonNull(theError));
+  }
+
+  /**
+   * Retrieves whether the request succeeded.
+   *
+   * @return true for a success.
+   */
+  public boolean isOk() {
+    return myError == null;
+  }
+
+  /**
+   * Retrieves the value of a request that succeeded.
+   *
+   * @return the value.
+   * @throws IllegalStateException if the request failed.
+   */
+  public T getValue() {
+    if (myError != null) {
+      throw new IllegalStateException("Request failed: " + myError);
+    }
+    return myValue;
+  }
+
+  /**
+   * Retrieves the reason a request failed.
+   *
+   * @return the reason, or null if the request succeeded.
+   */
+  public RentalError getError() {
+    return myError;
+  }
+
+  /**
+   * Retrieves the message to show the user for a failed request.
+   *
+   * @return the message, or null if the request succeeded.
+   */
+  public String getMessage() {
+    return myError == null ? null : myError.getMessage();
+  }
+
+  @Override
+  public String toString() {
+    return myError == null ? "ok(" + myValue + ")" : "fail(" + myError + ")";
+  }
+}
@@ -0,0 +1,196 @@
+package rentzsystemui;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import vehicles.AbstractVehicle;
+
+/**
+ * A bill as it was issued and kept in the {@link BillStore}.
+ *
+ * <p>Unlike a {@link Bill}, which refers to the live user and vehicle and prices itself with
+ * the fares in force, a stored bill holds copies of everything its receipt shows, so the
+ * receipt stays the same when the vehicle is renamed or removed and the fares change.
+ * Instances never change.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class StoredBill {
+
+  /** The bill ID. */
+  private final long myBillId;
+
+  /** When the bill was issued, in milliseconds since the epoch. */
+  private final long myIssuedAt;
+
+  /** The name of the renter. */
+  private final String myUserName;
+
+  /** Whether the renter got the VIP discount. */
+  private final boolean myVip;
+
+  /** The unit number of the vehicle. */
+  private final int myUnit;
+
+  /** The name of the vehicle. */
+  private final String myVehicleName;
+
+  /** The type of the vehicle, the simple name of its class. */
+  private final String myVehicleType;
+
+  /** The VIN of the vehicle. */
+  private final String myVin;
+
+  /** The first day of the rental. */
+  private final LocalDate myFrom;
+
+  /** The priced lines of the bill. */
+  private final PriceBreakdown myPrice;
+
+  /**
+   * Creates a stored bill.
+   *
+   * @param theBillId the bill ID.
+   * @param theIssuedAt when the bill was issued, in milliseconds since the epoch.
+   * @param theUserName the name of the renter.
+   * @param theVip whether the renter got the VIP discount.
+   * @param theUnit the unit number of the vehicle.
+   * @param theVehicleName the name of the vehicle.
+   * @param theVehicleType the type of the vehicle.
+   * @param theVin the VIN of the vehicle.
+   * @param theFrom the first day of the rental.
+   * @param thePrice the priced lines of the bill.
+   */
+  StoredBill(final long theBillId, final long theIssuedAt, final String theUserName,
+             final boolean theVip, final int theUnit, final String theVehicleName,
+             final String theVehicleType, final String theVin, final LocalDate theFrom,
+             final PriceBreakdown thePrice) {
+    this.myBillId = theBillId;
+    this.myIssuedAt = theIssuedAt;
+    this.myUserName = theUserName;
+    this.myVip = theVip;
+    this.myUnit = theUnit;
+    this.myVehicleName = theVehicleName;
+    this.myVehicleType = theVehicleType;
+    this.myVin = theVin;
+    this.myFrom = theFrom;
+    this.myPrice = thePrice;
+  }
+
+  /**
+   * Takes a copy of a bill as it stands now.
+   *
+   * @param theBill the bill.
+   * @param theIssuedAt when the bill was issued, in milliseconds since the epoch.
+   * @return the copy.
+   */
+  public static StoredBill of(final Bill theBill, final long theIssuedAt) {
+    final AbstractVehicle vehicle = theBill.getVehicle();
+    return new StoredBill(theBill.getBillId(), theIssuedAt,
+                          theBill.getPrimaryUser().getMyName(), theBill.isVip(),
+                          vehicle.getMyUnitId(), vehicle.getMyName(),
+                          vehicle.getClass().getSimpleName(), vehicle.getMyVin(),
+                          theBill.getFrom(), theBill.getPrice());
+  }
+
+  /**
+   * Retrieves the bill ID.
+   *
+   * @return the ID.
+   */
+  public long getBillId() {
+    return myBillId;
+  }
+
+  /**
+   * Retrieves when the bill was issued.
+   *
+   * @return milliseconds since the epoch.
+   */
+  public long getIssuedAt() {
+    return myIssuedAt;
+  }
+
+  /**
+   * Retrieves when the bill was issued, in the local time zone.
+   *
+   * @return the date and time of issue.
+   */
+  public LocalDateTime getIssuedTime() {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(myIssuedAt), ZoneId.systemDefault());
+  }
+
+  /**
+   * Retrieves the name of the renter.
+   *
+   * @return the user name.
+   */
+  public String getUserName() {
+    return myUserName;
+  }
+
+  /**
+   * Retrieves whether the renter got the VIP discount.
+   *
+   * @return true for a VIP renter.
+   */
+  public boolean isVip() {
+    return myVip;
+  }
+
+  /**
+   * Retrieves the unit number of the vehicle.
+   *
+   * @return the unit number.
+   */
+  public int getUnit() {
+    return myUnit;
+  }
+
+  /**
+   * Retrieves the name of the vehicle.
+   *
+   * @return the name when the bill was issued.
+   */
+  public String getVehicleName() {
+    return myVehicleName;
+  }
+
+  /**
+   * Retrieves the type of the vehicle.
+   *
+   * @return the simple name of the vehicle class.
+   */
+  public String getVehicleType() {
+    return myVehicleType;
+  }
+
+  /**
+   * Retrieves the VIN of the vehicle.
+   *
+   * @return the VIN.
+   */
+  public String getVin() {
+    return myVin;
+  }
+
+  /**
+   * Retrieves the first day of the rental.
+   *
+   * @return the first day.
+   */
+  public LocalDate getFrom() {
+    return myFrom;
+  }
+
+  /**
+   * Retrieves the priced lines of the bill.
+   *
+   * @return the breakdown.
+   */
+  public PriceBreakdown getPrice() {
+    return myPrice;
+  }
+}
@@ -0,0 +1,77 @@
+package rentzsystemui;
+
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * Writes a bill as the text summary kept in the client bill files.
+ *
+ * @author Ricardo Salas
+ *
+ */
+public class TextBillRenderer implements BillRenderer {
+
+  /** Line that frames the title. */
+  private static final String STARS = "***********************";
+
+  /** The stream the bills are written to. */
+  private final PrintStream myOutput;
+
+  /**
+   * Creates a renderer that writes to a stream.
+   *
+   * @param theOutput the stream; each bill is written to it in one call.
+   */
+  public TextBillRenderer(final PrintStream theOutput) {
+    this.myOutput = Objects.requireNonNull(theOutput);
+  }
+
+  @Override
+  public void render(final Bill theBill) {
+    myOutput.print(toText(theBill));
+    myOutput.flush();
+  }
+
+  /**
+   * Lays out a bill as text.
+   *
+   * @param theBill the bill.
+   * @return the summary, one item per line.
+   */
+  public static String toText(final Bill theBill) {
+    return toText(StoredBill.of(theBill, 0));
+  }
+
+  /**
+   * Lays out an issued bill as text, the receipt the renter was given.
+   *
+   * @param theBill the bill.
+   * @return the summary, one item per line.
+   */
+  public static String toText(final StoredBill theBill) {
+    final PriceBreakdown price = theBill.getPrice();
+    final String nl = System.lineSeparator();
+    final StringBuilder text = new StringBuilder(512);
+    text.append(STARS).append(nl);
+    text.append(" Rental Bill Summary").append(nl);
+    text.append(STARS).append(nl);
+    text.append("User Name: ").append(theBill.getUserName()).append(nl);
+    text.append("----Vehicle Information----").append(nl);
+    text.append("VehicleName ").append(theBill.getVehicleName()).append(nl);
+    text.append("VehicleID ").append(theBill.getUnit()).append(nl);
+    text.append("VehicleType ").append(theBill.getVehicleType()).append(nl);
+    text.append("VIN ").append(theBill.getVin()).append(nl);
+    text.append("RentalStart ").append(theBill.getFrom()).append(nl);
+    text.append("----Cost Information----").append(nl);
+    text.append("RentalPerDay:").append(nl);
+    text.append("Cost per Day: ").append(CurrencyFormat.format(price.getDailyRate())).append(nl);
+    text.append("No.of Rental days: ").append(price.getDays()).append(nl);
+    text.append("Total Amount: ").append(CurrencyFormat.format(price.getSubtotal())).append(nl);
+    text.append("Insurance: ").append(CurrencyFormat.format(price.getInsurance())).append(nl);
+    text.append(theBill.isVip() ? "VIPDiscount: -" : "VIPDiscount: ")
+        .append(CurrencyFormat.format(price.getVipDiscount())).append(nl);
+    text.append("Tax: ").append(CurrencyFormat.format(price.getTax())).append(nl);
+    text.append("Total Rent: ").append(CurrencyFormat.format(price.getTotal())).append(nl);
+    return text.toString();
+  }
+}
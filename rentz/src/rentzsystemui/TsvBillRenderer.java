@@ -0,0 +1,82 @@
+package rentzsystemui;
+
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * Writes bills for other programs: one tab-separated line per bill, with the columns of
+ * {@link #HEADER}. Amounts are plain dollars with two decimals, rounded half-even to the cent.
+ * Tabs and line breaks in the user name are replaced by spaces.
+ *
+ * @author Ricardo Salas
+ *
+ */
+public class TsvBillRenderer implements BillRenderer {
+
+  /** Separator between the columns of a line. */
+  public static final char SEPARATOR = '\t';
+
+  /** The names of the columns. */
+  public static final String HEADER = String.join(String.valueOf(SEPARATOR), "bill", "user",
+      "unit", "type", "start", "days", "vip", "daily_rate", "subtotal", "insurance",
+      "vip_discount", "tax", "total");
+
+  /** The stream the bills are written to. */
+  private final PrintStream myOutput;
+
+  /**
+   * Creates a renderer that writes to a stream.
+   *
+   * @param theOutput the stream; each bill is written to it as one line in one call.
+   */
+  public TsvBillRenderer(final PrintStream theOutput) {
+    this.myOutput = Objects.requireNonNull(theOutput);
+  }
+
+  /**
+   * Writes the line naming the columns.
+   */
+  public void renderHeader() {
+    myOutput.println(HEADER);
+  }
+
+  @Override
+  public void render(final Bill theBill) {
+    myOutput.println(toLine(theBill));
+  }
+
+  /**
+   * Lays out a bill as one line.
+   *
+   * @param theBill the bill.
+   * @return the line, without a line break.
+   */
+  public static String toLine(final Bill theBill) {
+    return toLine(StoredBill.of(theBill, 0));
+  }
+
+  /**
+   * Lays out an issued bill as one line.
+   *
+   * @param theBill the bill.
+   * @return the line, without a line break.
+   */
+  public static String toLine(final StoredBill theBill) {
+    final PriceBreakdown price = theBill.getPrice();
+    final StringBuilder line = new StringBuilder(128);
+    line.append(theBill.getBillId()).append(SEPARATOR)
+        .append(theBill.getUserName().replaceAll("[\\t\\r\\n]", " "))
+        .append(SEPARATOR).append(theBill.getUnit())
+        .append(SEPARATOR).append(theBill.getVehicleType())
+        .append(SEPARATOR).append(theBill.getFrom())
+        .append(SEPARATOR).append(price.getDays())
+        .append(SEPARATOR).append(theBill.isVip())
+        .append(SEPARATOR).append(CurrencyFormat.plain(price.getDailyRate()))
+        .append(SEPARATOR).append(CurrencyFormat.plain(price.getSubtotal()))
+        .append(SEPARATOR).append(CurrencyFormat.plain(price.getInsurance()))
+        .append(SEPARATOR).append(CurrencyFormat.plain(price.getVipDiscount()))
+        .append(SEPARATOR).append(CurrencyFormat.plain(price.getTax()))
+        .append(SEPARATOR).append(CurrencyFormat.plain(price.getTotal()));
+    return line.toString();
+  }
+}
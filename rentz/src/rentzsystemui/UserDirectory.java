@@ -0,0 +1,507 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped directory of the users in registeredusers.txt.
+ *
+ * <p>Instead of turning every record into a {@link User} up front, the directory maps the user
+ * file and keeps an off-heap hash index from user name to the offset of that user's record.
+ * The file is in the binary {@link RecordFormat}; records cut short by a crash or failing
+ * their checksum are left out of the index.
+ * {@link #get(String)} hashes the name, probes the index and only then reads and builds the
+ * one record it needs, so the heap does not grow with the number of members.</p>
+ *
+ * <p>The index is an open-addressing table of (hash, offset) slots in a direct buffer. It is
+ * saved next to the user file as a '.idx' sidecar together with the length of the file it
+ * covers and a checksum of the bytes just before that length. Opening a directory whose
+ * sidecar still matches only has to read the table, and users appended since are indexed
+ * from where the sidecar stopped. If the file shrank or its indexed part changed, the index
+ * is rebuilt from scratch. As with the map it replaces, the last record for a name wins.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class UserDirectory {
+
+  /** Suffix of the index sidecar file. */
+  public static final String INDEX_SUFFIX = ".idx";
+
+  /** Magic number at the start of the sidecar, "RZIX". */
+  private static final int INDEX_MAGIC = 0x525A4958;
+
+  /** Version of the sidecar layout. */
+  private static final int INDEX_VERSION = 2;
+
+  /** Size of the sidecar header: magic, version, indexed length, fingerprint, capacity, count. */
+  private static final int HEADER_SIZE = 32;
+
+  /** Size of one slot: the name hash and the record offset plus one, zero when empty. */
+  private static final int SLOT_SIZE = 8;
+
+  /** Smallest table capacity. */
+  private static final int MIN_CAPACITY = 1024;
+
+  /** Number of bytes before the indexed length that the fingerprint covers. */
+  private static final int FINGERPRINT_BYTES = 64;
+
+  /** FNV-1a offset basis. */
+  private static final int FNV_OFFSET = 0x811C9DC5;
+
+  /** FNV-1a prime. */
+  private static final int FNV_PRIME = 0x01000193;
+
+  /** Offset of the name length within a user record: after the record length and tag. */
+  private static final int NAME_LENGTH_AT = 5;
+
+  /** Offset of the name bytes within a user record. */
+  private static final int NAME_AT = 7;
+
+  /** The user file. */
+  private final Path myPath;
+
+  /** The index sidecar. */
+  private final Path myIndexPath;
+
+  /** The user file mapped read-only, or null while it is empty. */
+  private MappedByteBuffer myData;
+
+  /** How much of the user file the index covers. */
+  private long myIndexedLength;
+
+  /** Checksum of the bytes just before the indexed length, as saved with the index. */
+  private long myIndexFingerprint = new CRC32().getValue();
+
+  /** The slots of the index, off the heap. */
+  private ByteBuffer myTable;
+
+  /** Number of slots, always a power of two. */
+  private int myCapacity;
+
+  /** Number of users in the index. */
+  private int myCount;
+
+  private UserDirectory(final String theFile) {
+    this.myPath = Paths.get(theFile).toAbsolutePath();
+    this.myIndexPath = Paths.get(theFile + INDEX_SUFFIX).toAbsolutePath();
+  }
+
+  /**
+   * Opens the directory of a user file, loading or building its index.
+   *
+   * @param theFile the name of the user file.
+   * @return the directory.
+   * @throws IOException if the file or its index could not be read.
+   */
+  public static UserDirectory open(final String theFile) throws IOException {
+    final UserDirectory directory = new UserDirectory(theFile);
+    if (!directory.loadIndex()) {
+      directory.resetTable(MIN_CAPACITY);
+    }
+    if (directory.refresh()) {
+      directory.saveIndex();
+    }
+    return directory;
+  }
+
+  /**
+   * Retrieves a user by name, reading only that user's record.
+   *
+   * @param theName the name of the user.
+   * @return the user, or null if there is no such user.
+   */
+  public synchronized User get(final String theName) {
+    final int offset = find(theName);
+    return offset < 0 ? null : readUser(offset);
+  }
+
+  /**
+   * Determines whether a user is in the directory.
+   *
+   * @param theName the name of the user.
+   * @return true if the user is registered.
+   */
+  public synchronized boolean contains(final String theName) {
+    return find(theName) >= 0;
+  }
+
+  /**
+   * Retrieves the number of registered users.
+   *
+   * @return the number of distinct user names.
+   */
+  public synchronized int size() {
+    return myCount;
+  }
+
+  /**
+   * Indexes the users appended to the file since it was last looked at. If the file shrank
+   * or its indexed part was changed, the whole index is rebuilt.
+   *
+   * @return true if the index changed.
+   * @throws IOException if the file could not be read.
+   */
+  public synchronized boolean refresh() throws IOException {
+    final long length = Files.exists(myPath) ? Files.size(myPath) : 0;
+    if (length == myIndexedLength) {
+      return false;
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("User file is too large to map: " + myPath);
+    }
+    mapData(length);
+    if (length < myIndexedLength || fingerprint(myIndexedLength) != myIndexFingerprint) {
+      resetTable(MIN_CAPACITY);
+      myIndexedLength = 0;
+    }
+    if (myData == null) {
+      myIndexFingerprint = fingerprint(0);
+      return true;
+    }
+    if (myIndexedLength == 0) {
+      if (RecordFormat.readHeader(myData) != RecordFormat.Kind.USERS) {
+        throw new IOException("Not a user file: " + myPath);
+      }
+      myIndexedLength = RecordFormat.HEADER_SIZE;
+    }
+    // A torn record at the end stays out of the index until it is repaired or completed.
+    myIndexedLength = RecordFormat.scan(myData, (int) myIndexedLength, (int) length,
+                                        this::indexRecord);
+    myIndexFingerprint = fingerprint(myIndexedLength);
+    return true;
+  }
+
+  /**
+   * Throws the index away and indexes the whole file again, for a file that was rewritten
+   * in place.
+   *
+   * @throws IOException if the file could not be read.
+   */
+  public synchronized void rebuild() throws IOException {
+    resetTable(MIN_CAPACITY);
+    myIndexedLength = 0;
+    myIndexFingerprint = new CRC32().getValue();
+    refresh();
+  }
+
+  /**
+   * Empties the in-memory index without touching the user file. The next refresh indexes
+   * the whole file again.
+   */
+  public synchronized void clear() {
+    resetTable(MIN_CAPACITY);
+    myIndexedLength = 0;
+    myIndexFingerprint = new CRC32().getValue();
+  }
+
+  /**
+   * Retrieves a read-only map view of the directory. Lookups go through the index; iterating
+   * reads every indexed record.
+   *
+   * @return a map where key is the user name and value is the user.
+   */
+  public Map<String, User> asMap() {
+    return new AbstractMap<String, User>() {
+      @Override
+      public User get(final Object theKey) {
+        return theKey instanceof String ? UserDirectory.this.get((String) theKey) : null;
+      }
+
+      @Override
+      public boolean containsKey(final Object theKey) {
+        return theKey instanceof String && contains((String) theKey);
+      }
+
+      @Override
+      public int size() {
+        return UserDirectory.this.size();
+      }
+
+      @Override
+      public Set<Map.Entry<String, User>> entrySet() {
+        return new AbstractSet<Map.Entry<String, User>>() {
+          @Override
+          public Iterator<Map.Entry<String, User>> iterator() {
+            return new EntryIterator();
+          }
+
+          @Override
+          public int size() {
+            return UserDirectory.this.size();
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Walks the occupied slots of the index.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<String, User>> {
+
+    /** The next slot to look at. */
+    private int mySlot = nextOccupied(0);
+
+    @Override
+    public boolean hasNext() {
+      return mySlot < myCapacity;
+    }
+
+    @Override
+    public Map.Entry<String, User> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final User user;
+      synchronized (UserDirectory.this) {
+        user = readUser(myTable.getInt(mySlot * SLOT_SIZE + 4) - 1);
+      }
+      mySlot = nextOccupied(mySlot + 1);
+      return new AbstractMap.SimpleImmutableEntry<>(user.getMyName(), user);
+    }
+  }
+
+  private synchronized int nextOccupied(final int theFrom) {
+    int slot = theFrom;
+    while (slot < myCapacity && myTable.getInt(slot * SLOT_SIZE + 4) == 0) {
+      slot++;
+    }
+    return slot;
+  }
+
+  private int find(final String theName) {
+    if (myData == null) {
+      return -1;
+    }
+    final byte[] name = theName.getBytes(StandardCharsets.UTF_8);
+    final int hash = hash(name);
+    final int mask = myCapacity - 1;
+    for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+      final int stored = myTable.getInt(slot * SLOT_SIZE + 4);
+      if (stored == 0) {
+        return -1;
+      }
+      if (myTable.getInt(slot * SLOT_SIZE) == hash && nameEquals(stored - 1, name)) {
+        return stored - 1;
+      }
+    }
+  }
+
+  private void indexRecord(final int theOffset, final RecordFormat.Fields theFields) {
+    if (theFields.getTag() != RecordFormat.TAG_USER) {
+      return;
+    }
+    final int nameEnd = theOffset + NAME_AT + nameLength(theOffset);
+    int hash = FNV_OFFSET;
+    for (int i = theOffset + NAME_AT; i < nameEnd; i++) {
+      hash = (hash ^ (myData.get(i) & 0xFF)) * FNV_PRIME;
+    }
+    insert(hash, theOffset);
+  }
+
+  private void insert(final int theHash, final int theOffset) {
+    final int mask = myCapacity - 1;
+    for (int slot = theHash & mask;; slot = (slot + 1) & mask) {
+      final int stored = myTable.getInt(slot * SLOT_SIZE + 4);
+      if (stored == 0) {
+        myTable.putInt(slot * SLOT_SIZE, theHash);
+        myTable.putInt(slot * SLOT_SIZE + 4, theOffset + 1);
+        myCount++;
+        if (myCount * 2 > myCapacity) {
+          grow();
+        }
+        return;
+      }
+      if (myTable.getInt(slot * SLOT_SIZE) == theHash && sameName(stored - 1, theOffset)) {
+        myTable.putInt(slot * SLOT_SIZE + 4, theOffset + 1);
+        return;
+      }
+    }
+  }
+
+  private void grow() {
+    final ByteBuffer oldTable = myTable;
+    final int oldCapacity = myCapacity;
+    resetTable(oldCapacity * 2);
+    final int mask = myCapacity - 1;
+    for (int i = 0; i < oldCapacity; i++) {
+      final int stored = oldTable.getInt(i * SLOT_SIZE + 4);
+      if (stored != 0) {
+        final int hash = oldTable.getInt(i * SLOT_SIZE);
+        int slot = hash & mask;
+        while (myTable.getInt(slot * SLOT_SIZE + 4) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        myTable.putInt(slot * SLOT_SIZE, hash);
+        myTable.putInt(slot * SLOT_SIZE + 4, stored);
+        myCount++;
+      }
+    }
+  }
+
+  private void resetTable(final int theCapacity) {
+    myCapacity = theCapacity;
+    myTable = ByteBuffer.allocateDirect(theCapacity * SLOT_SIZE);
+    myCount = 0;
+  }
+
+  private boolean nameEquals(final int theOffset, final byte[] theName) {
+    if (nameLength(theOffset) != theName.length) {
+      return false;
+    }
+    for (int i = 0; i < theName.length; i++) {
+      if (myData.get(theOffset + NAME_AT + i) != theName[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean sameName(final int theFirst, final int theSecond) {
+    final int length = nameLength(theFirst);
+    if (nameLength(theSecond) != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (myData.get(theFirst + NAME_AT + i) != myData.get(theSecond + NAME_AT + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int nameLength(final int theOffset) {
+    return myData.getShort(theOffset + NAME_LENGTH_AT) & 0xFFFF;
+  }
+
+  private User readUser(final int theOffset) {
+    final RecordFormat.Fields fields = RecordFormat.fieldsAt(myData, theOffset);
+    return new User(fields.readString(), fields.readString(), fields.readBoolean());
+  }
+
+  private void mapData(final long theLength) throws IOException {
+    if (theLength == 0) {
+      myData = null;
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(myPath, StandardOpenOption.READ)) {
+      myData = channel.map(FileChannel.MapMode.READ_ONLY, 0, theLength);
+    }
+  }
+
+  private static int hash(final byte[] theName) {
+    int hash = FNV_OFFSET;
+    for (byte b : theName) {
+      hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private long fingerprint(final long theLength) {
+    final CRC32 crc = new CRC32();
+    if (myData != null) {
+      for (int i = (int) Math.max(0, theLength - FINGERPRINT_BYTES); i < theLength; i++) {
+        crc.update(myData.get(i));
+      }
+    }
+    return crc.getValue();
+  }
+
+  private boolean loadIndex() {
+    if (!Files.exists(myIndexPath)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(myIndexPath, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) > 0) {
+        continue;
+      }
+      header.flip();
+      if (header.remaining() < HEADER_SIZE || header.getInt() != INDEX_MAGIC
+          || header.getInt() != INDEX_VERSION) {
+        return false;
+      }
+      final long indexedLength = header.getLong();
+      final long fingerprint = header.getLong();
+      final int capacity = header.getInt();
+      final int count = header.getInt();
+      if (Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY
+          || channel.size() != HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+        return false;
+      }
+      final ByteBuffer table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+      while (table.hasRemaining() && channel.read(table) > 0) {
+        continue;
+      }
+      if (table.hasRemaining()) {
+        return false;
+      }
+      final long length = Files.exists(myPath) ? Files.size(myPath) : 0;
+      if (length < indexedLength || length > Integer.MAX_VALUE) {
+        return false;
+      }
+      mapData(length);
+      if (fingerprint(indexedLength) != fingerprint) {
+        return false;
+      }
+      myTable = table;
+      myCapacity = capacity;
+      myCount = count;
+      myIndexedLength = indexedLength;
+      myIndexFingerprint = fingerprint;
+      return true;
+    } catch (final IOException e) {
+      System.err.println("Rebuilding user index: " + e.getMessage());
+      return false;
+    }
+  }
+
+  private synchronized void saveIndex() {
+    final Path temp = Paths.get(myIndexPath + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(myIndexedLength)
+            .putLong(myIndexFingerprint).putInt(myCapacity).putInt(myCount).flip();
+      final ByteBuffer table = myTable.duplicate();
+      table.clear();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      while (table.hasRemaining()) {
+        channel.write(table);
+      }
+    } catch (final IOException e) {
+      System.err.println("Could not save user index: " + e.getMessage());
+      return;
+    }
+    try {
+      Files.move(temp, myIndexPath, StandardCopyOption.ATOMIC_MOVE,
+                 StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException e) {
+      try {
+        Files.move(temp, myIndexPath, StandardCopyOption.REPLACE_EXISTING);
+      } catch (final IOException ex) {
+        System.err.println("Could not save user index: " + ex.getMessage());
+      }
+    } catch (final IOException e) {
+      System.err.println("Could not save user index: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package rentzsystemui;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A streaming parser for the 'name,password,vip' lines of registeredusers.txt.
+ *
+ * <p>The file is memory mapped in windows and scanned byte by byte in a single pass that
+ * notes the field separators on the way to each line end. Field boundaries are found by
+ * hand instead of with {@code String.split}, so no regex, token array or line string is
+ * created per record; the only objects built are the name and password strings
+ * and the {@link User} itself. A line that does not hold a valid user is reported to a
+ * {@link MalformedLineHandler} and skipped instead of stopping the load.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class UserFileParser {
+
+  /** Largest part of the file mapped at once. */
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  /** Field separator byte. */
+  private static final byte COMMA = ',';
+
+  /** Line terminator byte. */
+  private static final byte NEW_LINE = '\n';
+
+  /** Carriage return byte, dropped from the end of a line. */
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  /** The VIP flag that parses as true, compared ignoring case like Boolean.parseBoolean. */
+  private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+
+  /** Scratch space the fields are copied to before they are decoded. */
+  private byte[] myScratch = new byte[256];
+
+  /**
+   * Receives the lines that could not be turned into a user.
+   */
+  public interface MalformedLineHandler {
+
+    /**
+     * Called for every line that is skipped.
+     *
+     * @param theLineNumber the 1-based number of the line in the file.
+     * @param theReason why the line was skipped.
+     */
+    void malformed(long theLineNumber, String theReason);
+  }
+
+  /**
+   * Parses every user in a file.
+   *
+   * @param theFile the name of the user file.
+   * @param theUsers receives each user in file order.
+   * @param theMalformed receives each line that was skipped.
+   * @return the number of users parsed.
+   * @throws IOException if the file could not be read.
+   */
+  public long parse(final String theFile, final Consumer<User> theUsers,
+                    final MalformedLineHandler theMalformed) throws IOException {
+    final Path path = Paths.get(theFile).toAbsolutePath();
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    long users = 0;
+    long lineNumber = 0;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long windowStart = 0;
+      while (windowStart < size) {
+        final int windowLength = (int) Math.min(WINDOW_SIZE, size - windowStart);
+        final boolean lastWindow = windowStart + windowLength == size;
+        final MappedByteBuffer window =
+            channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+        int lineStart = 0;
+        int firstComma = -1;
+        int secondComma = -1;
+        int thirdComma = -1;
+        for (int i = 0; i < windowLength; i++) {
+          final byte current = window.get(i);
+          if (current == COMMA) {
+            if (firstComma < 0) {
+              firstComma = i;
+            } else if (secondComma < 0) {
+              secondComma = i;
+            } else if (thirdComma < 0) {
+              thirdComma = i;
+            }
+          } else if (current == NEW_LINE) {
+            lineNumber++;
+            if (parseLine(window, lineStart, i, firstComma, secondComma, thirdComma,
+                          lineNumber, theUsers, theMalformed)) {
+              users++;
+            }
+            lineStart = i + 1;
+            firstComma = -1;
+            secondComma = -1;
+            thirdComma = -1;
+          }
+        }
+        if (lastWindow) {
+          if (lineStart < windowLength) {
+            lineNumber++;
+            if (parseLine(window, lineStart, windowLength, firstComma, secondComma,
+                          thirdComma, lineNumber, theUsers, theMalformed)) {
+              users++;
+            }
+          }
+          break;
+        }
+        if (lineStart == 0) {
+          lineNumber++;
+          theMalformed.malformed(lineNumber, "line is longer than " + WINDOW_SIZE + " bytes");
+          windowStart = skipPastNewLine(channel, windowStart + windowLength, size);
+        } else {
+          windowStart += lineStart;
+        }
+      }
+    }
+    return users;
+  }
+
+  private boolean parseLine(final MappedByteBuffer theWindow, final int theStart, int theEnd,
+                            final int theFirstComma, final int theSecondComma,
+                            final int theThirdComma, final long theLineNumber,
+                            final Consumer<User> theUsers,
+                            final MalformedLineHandler theMalformed) {
+    if (theEnd > theStart && theWindow.get(theEnd - 1) == CARRIAGE_RETURN) {
+      theEnd--;
+    }
+    if (theEnd == theStart) {
+      theMalformed.malformed(theLineNumber, "empty line");
+      return false;
+    }
+    if (theSecondComma < 0) {
+      theMalformed.malformed(theLineNumber, "expected name,password,vip");
+      return false;
+    }
+    if (theFirstComma == theStart || theSecondComma == theFirstComma + 1) {
+      theMalformed.malformed(theLineNumber, "empty name or password");
+      return false;
+    }
+    final int vipEnd = theThirdComma < 0 ? theEnd : theThirdComma;
+
+    final String name = decode(theWindow, theStart, theFirstComma);
+    final String password = decode(theWindow, theFirstComma + 1, theSecondComma);
+    final boolean isVip = isTrue(theWindow, theSecondComma + 1, vipEnd);
+    theUsers.accept(new User(name, password, isVip));
+    return true;
+  }
+
+  private static boolean isTrue(final MappedByteBuffer theWindow, final int theFrom,
+                                final int theTo) {
+    if (theTo - theFrom != TRUE.length) {
+      return false;
+    }
+    for (int i = 0; i < TRUE.length; i++) {
+      if ((theWindow.get(theFrom + i) | 0x20) != TRUE[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decode(final MappedByteBuffer theWindow, final int theFrom, final int theTo) {
+    final int length = theTo - theFrom;
+    if (length > myScratch.length) {
+      myScratch = new byte[Math.max(length, myScratch.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      myScratch[i] = theWindow.get(theFrom + i);
+    }
+    return new String(myScratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private static long skipPastNewLine(final FileChannel theChannel, final long theFrom,
+                                      final long theSize) throws IOException {
+    long position = theFrom;
+    while (position < theSize) {
+      final int length = (int) Math.min(WINDOW_SIZE, theSize - position);
+      final MappedByteBuffer window =
+          theChannel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      for (int i = 0; i < length; i++) {
+        if (window.get(i) == NEW_LINE) {
+          return position + i + 1;
+        }
+      }
+      position += length;
+    }
+    return theSize;
+  }
+}
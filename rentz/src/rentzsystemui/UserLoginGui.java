@@ -92,8 +92,8 @@ public class UserLoginGui extends JFrame {
         myCurrentUser = username;
         char[] passwordChars = passwordField.getPassword();
         String password = new String(passwordChars);
-        final Registration reg = new Registration();
-        if (reg.existingMemLogin(username, password)) {
+        final ServiceResult<User> login = RentalService.shared().login(username, password);
+        if (login.isOk()) {
           VehicleInfoGui itemInfoGui = new VehicleInfoGui(theFrame);
 
           //remove the content from the frame
@@ -103,8 +103,7 @@ public class UserLoginGui extends JFrame {
         } else {
           usernameField.setText("");
           passwordField.setText("");
-          JOptionPane.showMessageDialog(null, "Username or password is incorrect."
-                                              + " If you are a new user please create an account.");
+          JOptionPane.showMessageDialog(null, login.getMessage());
           }
         }
       });
@@ -150,8 +149,7 @@ public class UserLoginGui extends JFrame {
         char[] passwordChars = newPasswordField.getPassword();
         String password = new String(passwordChars);
 
-        final Registration reg = new Registration();
-        if (reg.newMemSignUp(theUsername, password)) {
+        if (signUp(theUsername, password)) {
           
           JPanel loginPanel = loginPanelStart(myFrame);
           
@@ -170,6 +168,37 @@ public class UserLoginGui extends JFrame {
     return panel;
   }
 
+  /**
+   * Signs up a new member, asking again for the user name or password until the
+   * {@link RentalService} accepts them.
+   *
+   * @param theUsername the user name entered.
+   * @param thePassword the password entered.
+   * @return true if the account was created.
+   */
+  private boolean signUp(final String theUsername, final String thePassword) {
+    String username = theUsername;
+    String password = thePassword;
+    final boolean vip = JOptionPane.showConfirmDialog(null, "Join our Premium Membership?")
+                        == JOptionPane.YES_OPTION;
+    while (username != null && password != null) {
+      final ServiceResult<User> result = RentalService.shared().register(username, password, vip);
+      if (result.isOk()) {
+        JOptionPane.showMessageDialog(null, "Welcome to RENTZ, your account is now active.");
+        return true;
+      }
+      if (result.getError() == RentalError.USER_EXISTS) {
+        username = JOptionPane.showInputDialog(result.getMessage());
+      } else if (result.getError() == RentalError.WEAK_PASSWORD) {
+        password = JOptionPane.showInputDialog(result.getMessage());
+      } else {
+        JOptionPane.showMessageDialog(null, result.getMessage());
+        return false;
+      }
+    }
+    return false;
+  }
+
   /** 
    * Retrieves the name of the currently logged-in user.
    *
@@ -1,166 +1,367 @@
-package vehicles;
-
-import java.math.BigDecimal;
-import java.util.Objects;
-
-/**
- * Abstract representation of vehicles for rental purposes.
- *
- * <p>This class serves as a blueprint for various types of vehicles that can be rented.
- * It includes common properties and behaviors that all vehicle types share.
- *
- * @author Ricardo Salas
- *
- */
-public abstract class AbstractVehicle {
-  /** Represents the base fare for renting a vehicle.*/
-  private static final BigDecimal BASE_FARE = new BigDecimal(10);
-
-  /** Represents a non-basic vehicle fare for renting a vehicle. */
-  public static final BigDecimal SPECIAL_FARE = BASE_FARE;
-
-  /** Represents a premium for motorcycles. */
-  public static final BigDecimal MOTORCYCLE_PREMIUM = BASE_FARE.multiply(new BigDecimal(2));
-
-  /** Represents the base fare for renting out cars. */
-  public static final BigDecimal CAR_FARE = BASE_FARE.multiply(new BigDecimal(3));
-
-  /** Represents the unique VIN for the vehicle. */
-  private final String myVin;
-
-  /** Represents the name of the vehicle. */
-  private String myName;
-
-  /** 
-   * Represents the rental status of the vehicle availability.
-   * 
-   * <p>This is set independently as well, when instantiating a subclass of this class for the
-   *     purposes of possible unavailability of the vehicle.
-   */
-  private boolean myAvailabilityStatus = true;
-  
-  /** Represents a description of the rental. */
-  private String myDescription;
-
-  /**
-   * Creates a new vehicle.
-   *
-   * @param theName String representation of vehicle.
-   * @param theVin  String VIN representation of vehicle.
-   * @param theDescription Information about the vehicle.
-   */
-  public AbstractVehicle(final String theName, final String theVin,
-                           final String theDescription) {
-    this.myName = theName;
-    this.myVin = theVin;
-    this.myDescription = theDescription;
-  }
-
-  /**
-   * Calculates the rental total.
-   *
-   *  @return Calculate rental amount.
-   */
-  public abstract BigDecimal calculateRentalAmount();
-
-  /**
-   *  Retrieves the string representation of the vehicle.
-   *
-   *  @return String representation of the vehicle.
-   */
-  public abstract String toString();
-
-  /**
-   * Redefinition of the hash code method from the one in the parent class.
-   *
-   * @return hash code
-   */
-  public int hashCode() {
-    return Objects.hash(myVin, myName, myAvailabilityStatus);
-  }
-
-  /**
-   * Retrieves an arranged value for the rental.
-   *
-   *  @return BASE_FARE */
-  public static BigDecimal getBaseFare() {
-    return BASE_FARE;
-  }
-
-  /**
-   * Retrieves the VIN number of the vehicle.
-   *
-   *  @return Vehicle VIN.
-   */
-  public String getMyVin() {
-    return myVin;
-  }
-  
-  /** Sets the name of the vehicle. */
-  public void setMyName(final String theName) {
-    this.myName = theName;
-  }
-
-  /**
-   * Retrieves the type of vehicle.
-   *
-   * @return the type of vehicle.
-   */
-  public String getMyType() {
-    return this.getClass().getSimpleName();
-  }
-
-  /**
-   * Retrieves the rental status of the vehicle.
-   *
-   *  @return true if the vehicle can be rented, false otherwise.
-   */
-  public boolean isRentable() {
-    return myAvailabilityStatus;
-  }
-
-  /**
-   * Sets the rental status to true if no user has rented it, false otherwise.
-   *
-   *  @param theRentalStatus to set.
-   */
-  public void setMyRentalStatus(final boolean theRentalStatus) {
-    this.myAvailabilityStatus = theRentalStatus;
-  }
-
-  /**
-   * Displays the name of the vehicle.
-   *
-   * @return string name of vehicle with spaces for display.
-   */
-  public String getDisplayName() {
-    return "        " + myName + "          ";
-  }
-  
-  /**
-   * Retrieves the name of the vehicle.
-   *
-   * @return myName String representation of the vehicle */
-  public String getMyName() {
-    return myName;
-  }
-
-  /**
-   * Retrieves the information pertaining to the vehicle.
-   *
-   * @return myDescription Information on the vehicle.
-   */
-  public String getMyDiscription() {
-    return myDescription;
-  }
-
-  /**
-   * Sets the description of the vehicle.
-   *
-   * @param myDescription a string of information about the vehicle.
-   */
-  public void setMyDiscription(String myDescription) {
-    this.myDescription = myDescription;
-  }
-  
+package vehicles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Abstract representation of vehicles for rental purposes.
+ *
+ * <p>This class serves as a blueprint for various types of vehicles that can be rented.
+ * It includes common properties and behaviors that all vehicle types share.
+ *
+ * @author Ricardo Salas
+ *
+ */
+public abstract class AbstractVehicle {
+  /** Represents the base fare for renting a vehicle.*/
+  private static final BigDecimal BASE_FARE = new BigDecimal(10);
+
+  /**
+   * Represents a non-basic vehicle fare for renting a vehicle.
+   *
+   * @deprecated fares are looked up in the {@link FareTable}; this is only its built-in fare
+   *             of boats and jet skis.
+   */
+  @Deprecated
+  public static final BigDecimal SPECIAL_FARE = BASE_FARE;
+
+  /**
+   * Represents a premium for motorcycles.
+   *
+   * @deprecated fares are looked up in the {@link FareTable}; this is only its built-in base
+   *             fare of motorcycles.
+   */
+  @Deprecated
+  public static final BigDecimal MOTORCYCLE_PREMIUM = BASE_FARE.multiply(new BigDecimal(2));
+
+  /**
+   * Represents the base fare for renting out cars.
+   *
+   * @deprecated fares are looked up in the {@link FareTable}; this is only its built-in base
+   *             fare of cars and the other road vehicles.
+   */
+  @Deprecated
+  public static final BigDecimal CAR_FARE = BASE_FARE.multiply(new BigDecimal(3));
+
+  /** Number of decimal places of the daily rate in {@link #getDailyRateUnits()}. */
+  public static final int RATE_SCALE = 4;
+
+  /** Version of the fares in force, bumped by {@link #invalidateFares()}. */
+  private static final AtomicInteger FARE_VERSION = new AtomicInteger();
+
+  /** Represents the unique VIN for the vehicle. */
+  private final String myVin;
+
+  /** The unit number that identifies this vehicle in the fleet, -1 until it is assigned. */
+  private int myUnitId = -1;
+
+  /** Represents the name of the vehicle. */
+  private String myName;
+
+  /** 
+   * Represents the rental status of the vehicle availability.
+   * 
+   * <p>This is set independently as well, when instantiating a subclass of this class for the
+   *     purposes of possible unavailability of the vehicle. Once the vehicle is registered
+   *     with a {@link VehicleRegistry} its bit in the fleet bitmap is used instead.
+   */
+  private boolean myAvailabilityStatus = true;
+
+  /** The availability bitmap of the fleet the vehicle belongs to, or null if it has none. */
+  private volatile AvailabilityBitmap myFleet;
+
+  /** The booking calendar of the fleet the vehicle belongs to, or null if it has none. */
+  private volatile FleetCalendar myCalendar;
+
+  /** The slot of the vehicle in the fleet bitmap. */
+  private volatile int mySlot;
+  
+  /** Represents a description of the rental. */
+  private String myDescription;
+
+  /** The daily rate for the fares in force when it was computed, or null until first asked. */
+  private volatile DailyRate myDailyRate;
+
+  /**
+   * A daily rate together with the fare version it was computed for, so both are read at once.
+   */
+  private static final class DailyRate {
+
+    /** The fare version the rate was computed for. */
+    private final int myFareVersion;
+
+    /** The rate. */
+    private final BigDecimal myAmount;
+
+    /** The rate in units of 10^-{@value AbstractVehicle#RATE_SCALE}. */
+    private final long myUnits;
+
+    private DailyRate(final int theFareVersion, final long theUnits) {
+      this.myFareVersion = theFareVersion;
+      this.myUnits = theUnits;
+      this.myAmount = BigDecimal.valueOf(theUnits, RATE_SCALE).setScale(FareTable.FARE_DECIMALS);
+    }
+  }
+
+  /**
+   * Creates a new vehicle.
+   *
+   * @param theName String representation of vehicle.
+   * @param theVin  String VIN representation of vehicle.
+   * @param theDescription Information about the vehicle.
+   */
+  public AbstractVehicle(final String theName, final String theVin,
+                           final String theDescription) {
+    this.myName = theName;
+    this.myVin = theVin;
+    this.myDescription = theDescription;
+  }
+
+  /**
+   * Retrieves the daily rate of the vehicle from the {@link FareTable}. The options of a
+   * vehicle never change, so the rate is looked up once and kept until
+   * {@link #invalidateFares()} is called.
+   *
+   *  @return the daily rental amount, in dollars and cents.
+   */
+  public final BigDecimal calculateRentalAmount() {
+    return dailyRate().myAmount;
+  }
+
+  /**
+   * Retrieves the daily rate of the vehicle as a whole number of minor units, for arithmetic
+   * that should not allocate. Cached like {@link #calculateRentalAmount()}.
+   *
+   *  @return the daily rental amount in units of 10^-{@value #RATE_SCALE}.
+   */
+  public final long getDailyRateUnits() {
+    return dailyRate().myUnits;
+  }
+
+  /**
+   * Retrieves the options the fare of the vehicle depends on.
+   *
+   *  @return the option bits of a road vehicle, see {@link FareTable#roadOptions}, or the
+   *          ordinal of the type of a boat or jet ski.
+   */
+  protected abstract int getFareOptions();
+
+  /**
+   * Discards the daily rate of every vehicle, to be called whenever the fares change. Each
+   * vehicle computes its rate again the next time it is asked for it.
+   */
+  public static void invalidateFares() {
+    FARE_VERSION.incrementAndGet();
+  }
+
+  /**
+   *  Retrieves the string representation of the vehicle.
+   *
+   *  @return String representation of the vehicle.
+   */
+  public abstract String toString();
+
+  /**
+   * Redefinition of the hash code method from the one in the parent class.
+   *
+   * @return hash code
+   */
+  public int hashCode() {
+    return Objects.hash(myVin, myName, isRentable());
+  }
+
+  /**
+   * Retrieves an arranged value for the rental.
+   *
+   *  @return BASE_FARE */
+  public static BigDecimal getBaseFare() {
+    return BASE_FARE;
+  }
+
+  /**
+   * Retrieves the VIN number of the vehicle.
+   *
+   *  @return Vehicle VIN.
+   */
+  public String getMyVin() {
+    return myVin;
+  }
+  
+  /**
+   * Retrieves the unit number of the vehicle. Unlike the name and VIN, which several vehicles
+   * of the fleet may share, the unit number is unique within the fleet.
+   *
+   * @return the unit number, or -1 if the vehicle has not been given one.
+   */
+  public int getMyUnitId() {
+    return myUnitId;
+  }
+
+  /**
+   * Sets the unit number of the vehicle.
+   *
+   * @param theUnitId the unit number from the vehicle catalog.
+   */
+  void setMyUnitId(final int theUnitId) {
+    this.myUnitId = theUnitId;
+  }
+
+  /** Sets the name of the vehicle. */
+  public void setMyName(final String theName) {
+    this.myName = theName;
+  }
+
+  /**
+   * Retrieves the type of vehicle.
+   *
+   * @return the type of vehicle.
+   */
+  public String getMyType() {
+    return this.getClass().getSimpleName();
+  }
+
+  /**
+   * Retrieves the rental status of the vehicle.
+   *
+   *  @return true if the vehicle can be rented, false otherwise.
+   */
+  public boolean isRentable() {
+    final AvailabilityBitmap fleet = myFleet;
+    return fleet == null ? myAvailabilityStatus : fleet.isAvailable(mySlot);
+  }
+
+  /**
+   * Sets the rental status to true if no user has rented it, false otherwise.
+   *
+   *  @param theRentalStatus to set.
+   */
+  public void setMyRentalStatus(final boolean theRentalStatus) {
+    final AvailabilityBitmap fleet = myFleet;
+    if (fleet == null) {
+      this.myAvailabilityStatus = theRentalStatus;
+    } else {
+      fleet.set(mySlot, theRentalStatus);
+    }
+  }
+
+  /**
+   * Determines whether the vehicle can be rented on a day. Today that also takes whether it
+   * is out right now; for the days ahead it is whether the fleet calendar has it booked.
+   *
+   * @param theDay the day.
+   * @return true if the vehicle is free that day.
+   */
+  public boolean isRentableOn(final LocalDate theDay) {
+    if (!theDay.isAfter(LocalDate.now()) && !isRentable()) {
+      return false;
+    }
+    final FleetCalendar calendar = myCalendar;
+    return calendar == null || calendar.isFreeSlot(mySlot, theDay.toEpochDay());
+  }
+
+  /**
+   * Takes the vehicle for a rental if it is available. When several callers race for the
+   * same registered vehicle exactly one of them gets it.
+   *
+   * @return true if the caller took the vehicle, false if it was already rented.
+   */
+  public boolean tryRent() {
+    final AvailabilityBitmap fleet = myFleet;
+    if (fleet != null) {
+      return fleet.tryAcquire(mySlot);
+    }
+    synchronized (this) {
+      final boolean available = myAvailabilityStatus;
+      myAvailabilityStatus = false;
+      return available;
+    }
+  }
+
+  /**
+   * Makes the vehicle available again.
+   *
+   * @return true if the vehicle had been rented, false if it was already available.
+   */
+  public boolean returnRental() {
+    final AvailabilityBitmap fleet = myFleet;
+    if (fleet != null) {
+      return fleet.release(mySlot);
+    }
+    synchronized (this) {
+      final boolean rented = !myAvailabilityStatus;
+      myAvailabilityStatus = true;
+      return rented;
+    }
+  }
+
+  /**
+   * Moves the availability of the vehicle to a slot of a fleet bitmap, or back into the
+   * vehicle when the bitmap is null. Only called by {@link VehicleRegistry} while no rental
+   * is in progress.
+   *
+   * @param theFleet the bitmap of the fleet, or null.
+   * @param theCalendar the booking calendar of the fleet, or null.
+   * @param theSlot the slot of the vehicle in the bitmap and calendar.
+   */
+  void bind(final AvailabilityBitmap theFleet, final FleetCalendar theCalendar,
+            final int theSlot) {
+    final boolean available = isRentable();
+    if (theFleet == null) {
+      myAvailabilityStatus = available;
+    } else {
+      theFleet.set(theSlot, available);
+    }
+    mySlot = theSlot;
+    myCalendar = theCalendar;
+    myFleet = theFleet;
+  }
+
+  private DailyRate dailyRate() {
+    final int version = FARE_VERSION.get();
+    DailyRate rate = myDailyRate;
+    if (rate == null || rate.myFareVersion != version) {
+      rate = new DailyRate(version,
+                           FareTable.current().getRate(VehicleType.of(this), getFareOptions()));
+      myDailyRate = rate;
+    }
+    return rate;
+  }
+
+  /**
+   * Displays the name of the vehicle.
+   *
+   * @return string name of vehicle with spaces for display.
+   */
+  public String getDisplayName() {
+    return "        " + myName + "          ";
+  }
+  
+  /**
+   * Retrieves the name of the vehicle.
+   *
+   * @return myName String representation of the vehicle */
+  public String getMyName() {
+    return myName;
+  }
+
+  /**
+   * Retrieves the information pertaining to the vehicle.
+   *
+   * @return myDescription Information on the vehicle.
+   */
+  public String getMyDiscription() {
+    return myDescription;
+  }
+
+  /**
+   * Sets the description of the vehicle.
+   *
+   * @param myDescription a string of information about the vehicle.
+   */
+  public void setMyDiscription(String myDescription) {
+    this.myDescription = myDescription;
+  }
+  
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package vehicles;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One availability bit per vehicle of the fleet, set while the vehicle can be rented.
+ *
+ * <p>The bits are packed 64 to a word of an {@link AtomicLongArray}. A vehicle is rented by
+ * clearing its bit with a compare-and-set on its word, which only one of any number of
+ * concurrent callers can win, so a vehicle is never handed out twice and no lock is taken.
+ * Counting and finding the available vehicles of a type work a word at a time against a
+ * mask holding the bits of that type.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class AvailabilityBitmap {
+
+  /** Number of bits in a word. */
+  private static final int WORD_BITS = Long.SIZE;
+
+  /** The availability bits. */
+  private final AtomicLongArray myWords;
+
+  /** Number of bits. */
+  private final int myCapacity;
+
+  /**
+   * Creates a bitmap in which no vehicle is available.
+   *
+   * @param theCapacity the number of vehicles the bitmap holds.
+   */
+  public AvailabilityBitmap(final int theCapacity) {
+    this.myCapacity = theCapacity;
+    this.myWords = new AtomicLongArray(wordsFor(theCapacity));
+  }
+
+  /**
+   * Retrieves the number of words needed for a number of bits.
+   *
+   * @param theBits the number of bits.
+   * @return the number of words.
+   */
+  public static int wordsFor(final int theBits) {
+    return (theBits + WORD_BITS - 1) / WORD_BITS;
+  }
+
+  /**
+   * Adds a slot to a mask of slots.
+   *
+   * @param theMask the mask, at least {@link #wordsFor(int)} words long.
+   * @param theSlot the slot.
+   */
+  public static void addToMask(final long[] theMask, final int theSlot) {
+    theMask[theSlot / WORD_BITS] |= 1L << theSlot;
+  }
+
+  /**
+   * Retrieves the number of vehicles the bitmap holds.
+   *
+   * @return the number of slots.
+   */
+  public int capacity() {
+    return myCapacity;
+  }
+
+  /**
+   * Determines whether a vehicle is available.
+   *
+   * @param theSlot the slot of the vehicle.
+   * @return true if the vehicle can be rented.
+   */
+  public boolean isAvailable(final int theSlot) {
+    return (myWords.get(theSlot / WORD_BITS) & (1L << theSlot)) != 0;
+  }
+
+  /**
+   * Takes a vehicle if it is available.
+   *
+   * @param theSlot the slot of the vehicle.
+   * @return true if the caller took the vehicle, false if it was already taken.
+   */
+  public boolean tryAcquire(final int theSlot) {
+    final int index = theSlot / WORD_BITS;
+    final long bit = 1L << theSlot;
+    long word = myWords.get(index);
+    while ((word & bit) != 0) {
+      if (myWords.compareAndSet(index, word, word & ~bit)) {
+        return true;
+      }
+      word = myWords.get(index);
+    }
+    return false;
+  }
+
+  /**
+   * Makes a vehicle available again.
+   *
+   * @param theSlot the slot of the vehicle.
+   * @return true if the vehicle had been taken, false if it was already available.
+   */
+  public boolean release(final int theSlot) {
+    final int index = theSlot / WORD_BITS;
+    final long bit = 1L << theSlot;
+    long word = myWords.get(index);
+    while ((word & bit) == 0) {
+      if (myWords.compareAndSet(index, word, word | bit)) {
+        return true;
+      }
+      word = myWords.get(index);
+    }
+    return false;
+  }
+
+  /**
+   * Sets whether a vehicle is available, whatever it was before.
+   *
+   * @param theSlot the slot of the vehicle.
+   * @param theAvailable true to make the vehicle available.
+   */
+  public void set(final int theSlot, final boolean theAvailable) {
+    if (theAvailable) {
+      release(theSlot);
+    } else {
+      tryAcquire(theSlot);
+    }
+  }
+
+  /**
+   * Counts the available vehicles among a mask of slots.
+   *
+   * @param theMask the slots to count, as built by {@link #addToMask(long[], int)}.
+   * @return the number of available vehicles in the mask.
+   */
+  public int count(final long[] theMask) {
+    final int words = Math.min(theMask.length, myWords.length());
+    int count = 0;
+    for (int i = 0; i < words; i++) {
+      count += Long.bitCount(myWords.get(i) & theMask[i]);
+    }
+    return count;
+  }
+
+  /**
+   * Clears the bits of the vehicles that are not available from a set of slots.
+   *
+   * @param theSlots the slots, laid out as built by {@link #addToMask(long[], int)}; slots
+   *        beyond the bitmap are cleared too.
+   */
+  public void retainAvailable(final long[] theSlots) {
+    for (int i = 0; i < theSlots.length; i++) {
+      theSlots[i] &= i < myWords.length() ? myWords.get(i) : 0;
+    }
+  }
+
+  /**
+   * Finds the first available vehicles among a mask of slots.
+   *
+   * @param theMask the slots to look at, as built by {@link #addToMask(long[], int)}.
+   * @param theSlots receives the slots of the available vehicles in slot order; its length is
+   *        the most that are looked for.
+   * @return the number of slots found.
+   */
+  public int first(final long[] theMask, final int[] theSlots) {
+    final int words = Math.min(theMask.length, myWords.length());
+    int found = 0;
+    for (int i = 0; i < words && found < theSlots.length; i++) {
+      long available = myWords.get(i) & theMask[i];
+      while (available != 0 && found < theSlots.length) {
+        theSlots[found++] = i * WORD_BITS + Long.numberOfTrailingZeros(available);
+        available &= available - 1;
+      }
+    }
+    return found;
+  }
+}
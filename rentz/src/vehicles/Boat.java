@@ -12,17 +12,41 @@ import java.util.Objects;
  */
 public class Boat extends AbstractVehicle {
 
-  /** Field variable to represent the water-based vehicle fee. */
-  public static final BigDecimal MARINE_CHARGE = SPECIAL_FARE;
+  /**
+   * Field variable to represent the water-based vehicle fee.
+   *
+   * @deprecated boat charges are looked up in the {@link FareTable}; this is only its
+   *             built-in charge of motorboats.
+   */
+  @Deprecated
+  public static final BigDecimal MARINE_CHARGE = getBaseFare();
 
-  /** field variable to represent the surf boat charge. */
-  public static final BigDecimal SURF_CHARGE = SPECIAL_FARE.multiply(new BigDecimal("0.01"));
+  /**
+   * field variable to represent the surf boat charge.
+   *
+   * @deprecated boat charges are looked up in the {@link FareTable}; this is only its
+   *             built-in charge of surf boats.
+   */
+  @Deprecated
+  public static final BigDecimal SURF_CHARGE = getBaseFare().multiply(new BigDecimal("0.01"));
 
-  /** Field variable to represent the cruiser fee. */
-  public static final BigDecimal CRUISER_CHARGE = SPECIAL_FARE.multiply(new BigDecimal("0.02"));
+  /**
+   * Field variable to represent the cruiser fee.
+   *
+   * @deprecated boat charges are looked up in the {@link FareTable}; this is only its
+   *             built-in charge of cruisers.
+   */
+  @Deprecated
+  public static final BigDecimal CRUISER_CHARGE = getBaseFare().multiply(new BigDecimal("0.02"));
 
-  /** Field variable to represent the sport fee. */
-  public static final BigDecimal SPORT_CHARGE = SPECIAL_FARE.multiply(new BigDecimal("0.04"));
+  /**
+   * Field variable to represent the sport fee.
+   *
+   * @deprecated boat charges are looked up in the {@link FareTable}; this is only its
+   *             built-in charge of sport boats.
+   */
+  @Deprecated
+  public static final BigDecimal SPORT_CHARGE = getBaseFare().multiply(new BigDecimal("0.04"));
 
   /** Field variable represents the type of boat. */
   private BoatType myBoatType;
@@ -88,33 +112,13 @@ public class Boat extends AbstractVehicle {
   }
 
   /**
-   * Adds to the amount to be billed based on type.
+   * Retrieves what the fare of the boat depends on: its type.
    *
-   * @SuppressWarnings
-   * @return rentalAmount set to price.
+   * @return the ordinal of the boat type.
    */
   @Override
-  public BigDecimal calculateRentalAmount() {
-
-    BigDecimal rentalAmount = MARINE_CHARGE;
-
-    switch (myBoatType) {
-      case MOTORBOAT:
-        rentalAmount = rentalAmount.add(SPECIAL_FARE);
-        break;
-      case SURF:
-        rentalAmount = rentalAmount.add(SURF_CHARGE);
-        break;
-      case CRUISER:
-        rentalAmount = rentalAmount.add(CRUISER_CHARGE);
-        break;
-      case SPORT:
-        rentalAmount = rentalAmount.add(SPORT_CHARGE);
-        break;
-      default:
-        break;
-    }
-    return rentalAmount;
+  protected int getFareOptions() {
+    return myBoatType.ordinal();
   }
 
   /**
@@ -0,0 +1,290 @@
+package vehicles;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The daily fares of the fleet, read from a properties file so they can change without a new
+ * build.
+ *
+ * <p>The file has a {@code <Type>.base} fare for each vehicle type, named by the simple class
+ * name as in the vehicle catalog, and a {@code <Type>.<option>} charge for each option. The
+ * options of road vehicles are 'luxury', 'navigation' and 'assistance' and add up; the options
+ * of boats and jet skis are the names of their {@link Boat.BoatType} or
+ * {@link JetSki.JetskiType}, one per vehicle. Amounts are in dollars and cents, with at most
+ * {@value #FARE_DECIMALS} decimals, so the insurance, discount and tax percentages of a bill
+ * come out exactly in the units of the daily rate. A fare missing from the file keeps its
+ * built-in value.</p>
+ *
+ * <p>Loading compiles the file into one array holding the daily rate of every type and option
+ * combination, so a rate is a single array read. A new table replaces the old one as a whole
+ * and every vehicle prices itself again, see {@link AbstractVehicle#invalidateFares()}.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class FareTable {
+
+  /** Option bit of a road vehicle with luxury features. */
+  public static final int LUXURY = 1;
+
+  /** Option bit of a road vehicle with navigation. */
+  public static final int NAVIGATION = 2;
+
+  /** Option bit of a road vehicle with driving assistance. */
+  public static final int ASSISTANCE = 4;
+
+  /** Most decimal places a fare may have. */
+  public static final int FARE_DECIMALS = 2;
+
+  /** Number of option combinations kept per vehicle type. */
+  private static final int OPTION_SLOTS = 8;
+
+  /** Key suffix of the base fare of a type. */
+  private static final String BASE = "base";
+
+  /** Names of the road vehicle options, in the order of their bits. */
+  private static final String[] ROAD_OPTIONS = {"luxury", "navigation", "assistance"};
+
+  /** Built-in fare of boats and jet skis, and charge of motorboats and cruiser jet skis. */
+  private static final BigDecimal SPECIAL_FARE = AbstractVehicle.getBaseFare();
+
+  /** Built-in base fare of motorcycles. */
+  private static final BigDecimal MOTORCYCLE_FARE =
+      AbstractVehicle.getBaseFare().multiply(new BigDecimal(2));
+
+  /** Built-in base fare of the other road vehicles. */
+  private static final BigDecimal CAR_FARE =
+      AbstractVehicle.getBaseFare().multiply(new BigDecimal(3));
+
+  /** The fares in force. */
+  private static volatile FareTable myCurrent = compile(defaults(), 0);
+
+  /** The file the fares were last loaded from, or null. */
+  private static Path myFile;
+
+  /** When that file was last modified as of loading it. */
+  private static long myFileModified;
+
+  /** The daily rate of each type and option combination, in units of the rate scale. */
+  private final long[] myRates;
+
+  /** Counts the tables loaded, starting from zero for the built-in fares. */
+  private final int myVersion;
+
+  private FareTable(final long[] theRates, final int theVersion) {
+    this.myRates = theRates;
+    this.myVersion = theVersion;
+  }
+
+  /**
+   * Retrieves the fares in force.
+   *
+   * @return the current table.
+   */
+  public static FareTable current() {
+    return myCurrent;
+  }
+
+  /**
+   * Combines the options of a road vehicle into the bits the table is indexed by.
+   *
+   * @param theLuxury whether the vehicle has luxury features.
+   * @param theNavigation whether the vehicle has navigation.
+   * @param theAssistance whether the vehicle has driving assistance.
+   * @return the option bits.
+   */
+  public static int roadOptions(final boolean theLuxury, final boolean theNavigation,
+                                final boolean theAssistance) {
+    return (theLuxury ? LUXURY : 0) | (theNavigation ? NAVIGATION : 0)
+           | (theAssistance ? ASSISTANCE : 0);
+  }
+
+  /**
+   * Retrieves a daily rate.
+   *
+   * @param theType the type of vehicle.
+   * @param theOptions the option bits of a road vehicle, or the ordinal of the type of a boat
+   *        or jet ski.
+   * @return the daily rate, in units of 10^-{@value AbstractVehicle#RATE_SCALE} dollars.
+   */
+  public long getRate(final VehicleType theType, final int theOptions) {
+    return myRates[theType.ordinal() * OPTION_SLOTS + theOptions];
+  }
+
+  /**
+   * Retrieves the version of the table.
+   *
+   * @return zero for the built-in fares, one more for every table loaded since.
+   */
+  public int getVersion() {
+    return myVersion;
+  }
+
+  /**
+   * Loads the fares from a file and puts them in force. A file that cannot be read or holds a
+   * bad fare is reported and leaves the fares in force as they were.
+   *
+   * @param theFile the name of the fares file.
+   * @return true if the new fares are in force.
+   */
+  public static synchronized boolean load(final String theFile) {
+    final Path path = Paths.get(theFile).toAbsolutePath();
+    final Properties fares = new Properties(defaults());
+    final long modified;
+    try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      modified = Files.getLastModifiedTime(path).toMillis();
+      fares.load(in);
+    } catch (final IOException e) {
+      System.err.println("Could not read fares " + path + ": " + e.getMessage());
+      return false;
+    }
+    myFile = path;
+    myFileModified = modified;
+    final FareTable table;
+    try {
+      table = compile(fares, myCurrent.myVersion + 1);
+    } catch (final IllegalArgumentException e) {
+      System.err.println("Keeping the fares in force, " + path + ": " + e.getMessage());
+      return false;
+    }
+    myCurrent = table;
+    AbstractVehicle.invalidateFares();
+    return true;
+  }
+
+  /**
+   * Loads the fares file again if it changed since it was last loaded.
+   *
+   * @return true if new fares were put in force.
+   */
+  public static synchronized boolean reloadIfChanged() {
+    if (myFile == null) {
+      return false;
+    }
+    try {
+      if (Files.getLastModifiedTime(myFile).toMillis() == myFileModified) {
+        return false;
+      }
+    } catch (final IOException e) {
+      System.err.println("Could not check fares " + myFile + ": " + e.getMessage());
+      return false;
+    }
+    return load(myFile.toString());
+  }
+
+  private static FareTable compile(final Properties theFares, final int theVersion) {
+    final Set<String> known = new HashSet<>();
+    final long[] rates = new long[VehicleType.values().length * OPTION_SLOTS];
+    for (VehicleType type : VehicleType.values()) {
+      final String prefix = type.getVehicleClass().getSimpleName() + ".";
+      final long base = fare(theFares, prefix + BASE, known);
+      final String[] options = optionNames(type);
+      final int first = type.ordinal() * OPTION_SLOTS;
+      if (isExclusive(type)) {
+        for (int i = 0; i < options.length; i++) {
+          rates[first + i] = Math.addExact(base, fare(theFares, prefix + options[i], known));
+        }
+      } else {
+        final long[] charges = new long[options.length];
+        for (int i = 0; i < options.length; i++) {
+          charges[i] = fare(theFares, prefix + options[i], known);
+        }
+        for (int mask = 0; mask < OPTION_SLOTS; mask++) {
+          long rate = base;
+          for (int i = 0; i < charges.length; i++) {
+            if ((mask & 1 << i) != 0) {
+              rate = Math.addExact(rate, charges[i]);
+            }
+          }
+          rates[first + mask] = rate;
+        }
+      }
+    }
+    for (String key : theFares.stringPropertyNames()) {
+      if (!known.contains(key)) {
+        throw new IllegalArgumentException("unknown fare " + key);
+      }
+    }
+    return new FareTable(rates, theVersion);
+  }
+
+  private static long fare(final Properties theFares, final String theKey,
+                           final Set<String> theKnown) {
+    theKnown.add(theKey);
+    final String value = theFares.getProperty(theKey, "0").trim();
+    final long units;
+    try {
+      units = new BigDecimal(value).setScale(FARE_DECIMALS)
+                                   .setScale(AbstractVehicle.RATE_SCALE).unscaledValue()
+                                   .longValueExact();
+    } catch (final NumberFormatException | ArithmeticException e) {
+      throw new IllegalArgumentException("bad fare " + theKey + "=" + value);
+    }
+    if (units < 0) {
+      throw new IllegalArgumentException("negative fare " + theKey + "=" + value);
+    }
+    return units;
+  }
+
+  private static boolean isExclusive(final VehicleType theType) {
+    return theType == VehicleType.BOAT || theType == VehicleType.JETSKI;
+  }
+
+  private static String[] optionNames(final VehicleType theType) {
+    final Enum<?>[] kinds;
+    if (theType == VehicleType.BOAT) {
+      kinds = Boat.BoatType.values();
+    } else if (theType == VehicleType.JETSKI) {
+      kinds = JetSki.JetskiType.values();
+    } else {
+      return ROAD_OPTIONS;
+    }
+    final String[] names = new String[kinds.length];
+    for (int i = 0; i < kinds.length; i++) {
+      names[i] = kinds[i].name();
+    }
+    return names;
+  }
+
+  /**
+   * The fares the fleet was priced with before they moved to a file.
+   */
+  private static Properties defaults() {
+    final Properties fares = new Properties();
+    for (VehicleType type : new VehicleType[] {VehicleType.CAR, VehicleType.ECO_CAR,
+        VehicleType.TRUCK, VehicleType.QUAD, VehicleType.MOTORCYCLE}) {
+      final String prefix = type.getVehicleClass().getSimpleName() + ".";
+      final BigDecimal base = type == VehicleType.MOTORCYCLE ? MOTORCYCLE_FARE : CAR_FARE;
+      fares.setProperty(prefix + BASE, base.toPlainString());
+      fares.setProperty(prefix + ROAD_OPTIONS[0], "10");
+      fares.setProperty(prefix + ROAD_OPTIONS[1], "1");
+      fares.setProperty(prefix + ROAD_OPTIONS[2], "2");
+    }
+    final String boat = Boat.class.getSimpleName() + ".";
+    fares.setProperty(boat + BASE, SPECIAL_FARE.toPlainString());
+    fares.setProperty(boat + Boat.BoatType.MOTORBOAT, SPECIAL_FARE.toPlainString());
+    fares.setProperty(boat + Boat.BoatType.SURF, share(SPECIAL_FARE, "0.01"));
+    fares.setProperty(boat + Boat.BoatType.CRUISER, share(SPECIAL_FARE, "0.02"));
+    fares.setProperty(boat + Boat.BoatType.SPORT, share(SPECIAL_FARE, "0.04"));
+    final String jetSki = JetSki.class.getSimpleName() + ".";
+    fares.setProperty(jetSki + BASE, SPECIAL_FARE.toPlainString());
+    fares.setProperty(jetSki + JetSki.JetskiType.CRUISER, SPECIAL_FARE.toPlainString());
+    fares.setProperty(jetSki + JetSki.JetskiType.TOWING, "0.10");
+    fares.setProperty(jetSki + JetSki.JetskiType.LUXURY, "0.20");
+    fares.setProperty(jetSki + JetSki.JetskiType.SPORT, "0.40");
+    return fares;
+  }
+
+  private static String share(final BigDecimal theFare, final String theShare) {
+    return theFare.multiply(new BigDecimal(theShare)).toPlainString();
+  }
+}
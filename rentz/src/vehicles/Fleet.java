@@ -0,0 +1,126 @@
+package vehicles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The fleet of the vehicle catalog, shared by the whole process.
+ *
+ * <p>The catalog file is read by {@link VehicleCatalog} once per process, normally on a
+ * background thread started by {@link #preload()} so the fleet is ready by the time it is first
+ * asked for, and the fares file is loaded into the {@link FareTable} with it. The vehicles are
+ * registered in one {@link VehicleRegistry} that every screen and service works on. A registry
+ * that was emptied is filled again by the next {@link #load()}.</p>
+ *
+ * <p>Nothing here needs a display, so the fleet can be used with or without the Swing
+ * screens.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class Fleet {
+
+  /** The vehicle catalog file. */
+  private static final String VEHICLE_CATALOG = "../rentz/src/vehiclecatalog/vehicles.tsv";
+
+  /** File holding the daily fares of the fleet. */
+  private static final String FARE_TABLE = "../rentz/src/vehiclecatalog/fares.properties";
+
+  /** The vehicles of the catalog by unit number. */
+  private final VehicleRegistry myRegistry = new VehicleRegistry();
+
+  /** The catalog being loaded in the background, null when no load is pending. */
+  private CompletableFuture<List<AbstractVehicle>> myCatalog;
+
+  /**
+   * Holds the fleet shared by the process, created on first use.
+   */
+  private static final class SharedHolder {
+
+    /** The fleet of the default catalog file. */
+    private static final Fleet INSTANCE = new Fleet();
+  }
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private Fleet() {
+
+  }
+
+  /**
+   * Retrieves the fleet shared by the whole process.
+   *
+   * @return the shared fleet.
+   */
+  public static Fleet shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * Starts loading the vehicle catalog on a background thread. Calling it again while a load
+   * is pending does nothing.
+   */
+  public synchronized void preload() {
+    if (myCatalog == null) {
+      myCatalog = CompletableFuture.supplyAsync(Fleet::readCatalog, runnable -> {
+        final Thread loader = new Thread(runnable, "rentz-catalog-loader");
+        loader.setDaemon(true);
+        loader.start();
+      });
+    }
+  }
+
+  /**
+   * Fills the registry from the catalog if it is empty, waiting for a load started by
+   * {@link #preload()}. A vehicle whose unit number is already taken is skipped. The
+   * calendar of the registry is booked again from its reservation source once the vehicles
+   * are in.
+   *
+   * @return the registry of the fleet.
+   */
+  public synchronized VehicleRegistry load() {
+    if (myRegistry.isEmpty()) {
+      preload();
+      for (AbstractVehicle vehicle : myCatalog.join()) {
+        try {
+          myRegistry.register(vehicle);
+        } catch (final IllegalArgumentException e) {
+          System.err.println("Skipping vehicle in " + VEHICLE_CATALOG + ": " + e.getMessage());
+        }
+      }
+      myCatalog = null;
+      myRegistry.getCalendar().refill();
+    }
+    return myRegistry;
+  }
+
+  /**
+   * Retrieves the registry of the fleet without loading it.
+   *
+   * @return the registry, empty until {@link #load()} fills it.
+   */
+  public VehicleRegistry getRegistry() {
+    return myRegistry;
+  }
+
+  /**
+   * Reads every vehicle in the catalog file.
+   *
+   * @return the vehicles in catalog order.
+   */
+  private static List<AbstractVehicle> readCatalog() {
+    final List<AbstractVehicle> vehicles = new ArrayList<AbstractVehicle>();
+    FareTable.load(FARE_TABLE);
+    try {
+      VehicleCatalog.load(VEHICLE_CATALOG, vehicles::add,
+          (lineNumber, reason) -> System.err.println("Skipping line " + lineNumber + " of "
+                                                     + VEHICLE_CATALOG + ": " + reason));
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+    return vehicles;
+  }
+}
@@ -0,0 +1,389 @@
+package vehicles;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Which vehicles of the fleet are booked on each day of the coming {@link #HORIZON_DAYS} days.
+ *
+ * <p>Every day of the horizon has a bitset with one bit per slot of the {@link VehicleRegistry}
+ * the calendar belongs to, set while the vehicle in that slot is booked that day. The days are
+ * kept in a ring, so when the calendar moves on to a new day the row of the day that passed is
+ * cleared and reused for the day that enters the horizon. Counting the free vehicles of a type
+ * on a day is a popcount of the day's row against the type's mask, and the vehicles free over a
+ * window of days are found by OR-ing the rows of the window together. For today the free bits
+ * are also AND-ed with the {@link AvailabilityBitmap} of the registry, so a vehicle that is out
+ * with a renter or out of service is not free today.</p>
+ *
+ * <p>Bookings are made and released as reservations change. Bookings outside the horizon are
+ * not stored, so the calendar asks its {@link ReservationSource} for the bookings of the days
+ * that enter the horizon as time moves on.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class FleetCalendar {
+
+  /** Number of days the calendar covers, starting today. */
+  public static final int HORIZON_DAYS = 90;
+
+  /** Number of bits in a word. */
+  private static final int WORD_BITS = Long.SIZE;
+
+  /** The registry whose slots the bits stand for. */
+  private final VehicleRegistry myRegistry;
+
+  /** The booked vehicles of each day, the row of a day is its epoch day modulo the horizon. */
+  private long[][] myBooked;
+
+  /** The epoch day of the first day of the horizon. */
+  private long myFirstDay;
+
+  /** Supplies the bookings of the days that enter the horizon, or null. */
+  private volatile ReservationSource mySource;
+
+  /**
+   * Supplies the bookings of a range of days.
+   */
+  public interface ReservationSource {
+
+    /**
+     * Books every reservation that holds a day of the range into the calendar.
+     *
+     * @param theCalendar the calendar to book into.
+     * @param theFrom the first day of the range.
+     * @param theTo the day after the last day of the range.
+     */
+    void fill(FleetCalendar theCalendar, LocalDate theFrom, LocalDate theTo);
+  }
+
+  /**
+   * Creates an empty calendar for a registry.
+   *
+   * @param theRegistry the registry whose slots the bits stand for.
+   * @param theCapacity the number of slots.
+   */
+  FleetCalendar(final VehicleRegistry theRegistry, final int theCapacity) {
+    this.myRegistry = theRegistry;
+    this.myBooked = new long[HORIZON_DAYS][AvailabilityBitmap.wordsFor(theCapacity)];
+    this.myFirstDay = LocalDate.now().toEpochDay();
+  }
+
+  /**
+   * Sets where the bookings of days entering the horizon come from, and books the whole
+   * horizon from it.
+   *
+   * @param theSource the source of bookings.
+   */
+  public void setSource(final ReservationSource theSource) {
+    mySource = theSource;
+    final LocalDate from;
+    synchronized (this) {
+      for (long[] row : myBooked) {
+        Arrays.fill(row, 0);
+      }
+      from = LocalDate.ofEpochDay(myFirstDay);
+    }
+    theSource.fill(this, from, from.plusDays(HORIZON_DAYS));
+  }
+
+  /**
+   * Books the whole horizon again from the source of bookings, if there is one, after
+   * vehicles were registered.
+   */
+  void refill() {
+    final ReservationSource source = mySource;
+    if (source != null) {
+      setSource(source);
+    }
+  }
+
+  /**
+   * Retrieves the first day of the horizon.
+   *
+   * @return today, or the last day the calendar was moved on to.
+   */
+  public synchronized LocalDate getFirstDay() {
+    return LocalDate.ofEpochDay(myFirstDay);
+  }
+
+  /**
+   * Moves the calendar on to a new first day. This happens on its own when the date changes,
+   * and does nothing for a day that is not after the current first day.
+   *
+   * @param theToday the new first day.
+   */
+  public void advanceTo(final LocalDate theToday) {
+    final long today = theToday.toEpochDay();
+    final long fillFrom;
+    synchronized (this) {
+      if (today <= myFirstDay) {
+        return;
+      }
+      final long lastDay = myFirstDay + HORIZON_DAYS;
+      fillFrom = Math.max(lastDay, today);
+      for (long day = myFirstDay; day < Math.min(today, lastDay); day++) {
+        Arrays.fill(row(day), 0);
+      }
+      if (today >= lastDay) {
+        for (long[] row : myBooked) {
+          Arrays.fill(row, 0);
+        }
+      }
+      myFirstDay = today;
+    }
+    final ReservationSource source = mySource;
+    if (source != null) {
+      source.fill(this, LocalDate.ofEpochDay(fillFrom), LocalDate.ofEpochDay(today + HORIZON_DAYS));
+    }
+  }
+
+  /**
+   * Marks a vehicle booked for a range of days. Days outside the horizon are ignored.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   */
+  public void book(final int theUnit, final LocalDate theFrom, final LocalDate theTo) {
+    mark(theUnit, theFrom, theTo, true);
+  }
+
+  /**
+   * Marks a vehicle free for a range of days. Days outside the horizon are ignored.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theFrom the first day.
+   * @param theTo the day after the last day.
+   */
+  public void release(final int theUnit, final LocalDate theFrom, final LocalDate theTo) {
+    mark(theUnit, theFrom, theTo, false);
+  }
+
+  /**
+   * Determines whether a vehicle is free on a day.
+   *
+   * @param theUnit the unit number of the vehicle.
+   * @param theDay the day.
+   * @return true if the vehicle is registered and not booked that day; days past the horizon
+   *         are not known and count as free.
+   */
+  public boolean isFree(final int theUnit, final LocalDate theDay) {
+    advanceTo(LocalDate.now());
+    final int slot = myRegistry.slotOf(theUnit);
+    return slot >= 0 && isFreeSlot(slot, theDay.toEpochDay());
+  }
+
+  /**
+   * Counts the free vehicles of a type on a day.
+   *
+   * @param theType the type of vehicle.
+   * @param theDay the day, within the horizon.
+   * @return the number of vehicles of the type not booked that day; today a vehicle must also
+   *         be rentable, as for {@link AbstractVehicle#isRentableOn(LocalDate)}.
+   */
+  public int countFree(final VehicleType theType, final LocalDate theDay) {
+    return countFree(theType, theDay, 1)[0];
+  }
+
+  /**
+   * Counts the free vehicles of a type on each of a run of days.
+   *
+   * @param theType the type of vehicle.
+   * @param theFrom the first day, within the horizon.
+   * @param theDays the number of days, the run must end within the horizon.
+   * @return the number of vehicles of the type not booked on each day; today a vehicle must
+   *         also be rentable, as for {@link AbstractVehicle#isRentableOn(LocalDate)}.
+   */
+  public int[] countFree(final VehicleType theType, final LocalDate theFrom, final int theDays) {
+    advanceTo(LocalDate.now());
+    final long[] mask = myRegistry.typeMask(theType);
+    synchronized (this) {
+      final long from = checkRange(theFrom.toEpochDay(), theDays);
+      final int total = count(mask);
+      final int[] counts = new int[theDays];
+      for (int i = 0; i < theDays; i++) {
+        if (from + i == myFirstDay) {
+          counts[i] = count(freeOver(mask, from + i, from + i + 1));
+          continue;
+        }
+        final long[] row = row(from + i);
+        int booked = 0;
+        for (int w = 0; w < Math.min(mask.length, row.length); w++) {
+          booked += Long.bitCount(row[w] & mask[w]);
+        }
+        counts[i] = total - booked;
+      }
+      return counts;
+    }
+  }
+
+  /**
+   * Finds the vehicles of a type that are free on every day of a window.
+   *
+   * @param theType the type of vehicle.
+   * @param theFrom the first day, within the horizon.
+   * @param theTo the day after the last day, at most the end of the horizon.
+   * @return the unit numbers of the free vehicles, in registration order; a window that holds
+   *         today only has vehicles that are rentable now.
+   */
+  public int[] findFree(final VehicleType theType, final LocalDate theFrom,
+                        final LocalDate theTo) {
+    advanceTo(LocalDate.now());
+    final long[] mask = myRegistry.typeMask(theType);
+    final long[] free;
+    synchronized (this) {
+      final long from = checkRange(theFrom.toEpochDay(),
+                                   (int) (theTo.toEpochDay() - theFrom.toEpochDay()));
+      free = freeOver(mask, from, theTo.toEpochDay());
+    }
+    final int[] units = new int[count(free)];
+    int found = 0;
+    for (int w = 0; w < free.length; w++) {
+      long bits = free[w];
+      while (bits != 0) {
+        units[found++] = myRegistry.keyAt(w * WORD_BITS + Long.numberOfTrailingZeros(bits));
+        bits &= bits - 1;
+      }
+    }
+    return units;
+  }
+
+  /**
+   * Finds the first day on which some vehicle of a type is free for a run of days.
+   *
+   * @param theType the type of vehicle.
+   * @param theDays the number of days the vehicle is wanted for.
+   * @param theEarliest the earliest first day.
+   * @return the first day of the earliest free window within the horizon, or null if there is
+   *         none.
+   */
+  public LocalDate findWindow(final VehicleType theType, final int theDays,
+                              final LocalDate theEarliest) {
+    advanceTo(LocalDate.now());
+    final long[] mask = myRegistry.typeMask(theType);
+    synchronized (this) {
+      final long end = myFirstDay + HORIZON_DAYS;
+      for (long start = Math.max(myFirstDay, theEarliest.toEpochDay());
+           start + theDays <= end; start++) {
+        if (count(freeOver(mask, start, start + theDays)) > 0) {
+          return LocalDate.ofEpochDay(start);
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Determines whether a slot is free on a day.
+   *
+   * @param theSlot the slot.
+   * @param theDay the epoch day.
+   * @return true if the slot is not booked that day, or the day is outside the horizon.
+   */
+  synchronized boolean isFreeSlot(final int theSlot, final long theDay) {
+    if (theDay < myFirstDay || theDay >= myFirstDay + HORIZON_DAYS) {
+      return true;
+    }
+    final long[] row = row(theDay);
+    final int word = theSlot / WORD_BITS;
+    return word >= row.length || (row[word] & (1L << theSlot)) == 0;
+  }
+
+  /**
+   * Makes room for more slots.
+   *
+   * @param theCapacity the new number of slots.
+   */
+  synchronized void resize(final int theCapacity) {
+    final int words = AvailabilityBitmap.wordsFor(theCapacity);
+    for (int i = 0; i < myBooked.length; i++) {
+      myBooked[i] = Arrays.copyOf(myBooked[i], words);
+    }
+  }
+
+  /**
+   * Drops a slot, moving the bits of the slots after it down by one to follow the vehicles.
+   *
+   * @param theSlot the slot that was removed.
+   */
+  synchronized void removeSlot(final int theSlot) {
+    for (long[] row : myBooked) {
+      final int word = theSlot / WORD_BITS;
+      final long below = (1L << theSlot) - 1;
+      row[word] = (row[word] & below) | ((row[word] >>> 1) & ~below);
+      for (int w = word + 1; w < row.length; w++) {
+        row[w - 1] |= (row[w] & 1L) << (WORD_BITS - 1);
+        row[w] >>>= 1;
+      }
+    }
+  }
+
+  /**
+   * Forgets every booking.
+   */
+  synchronized void clear() {
+    for (long[] row : myBooked) {
+      Arrays.fill(row, 0);
+    }
+  }
+
+  private void mark(final int theUnit, final LocalDate theFrom, final LocalDate theTo,
+                    final boolean theBooked) {
+    advanceTo(LocalDate.now());
+    final int slot = myRegistry.slotOf(theUnit);
+    if (slot < 0) {
+      return;
+    }
+    synchronized (this) {
+      final long from = Math.max(theFrom.toEpochDay(), myFirstDay);
+      final long to = Math.min(theTo.toEpochDay(), myFirstDay + HORIZON_DAYS);
+      final int word = slot / WORD_BITS;
+      final long bit = 1L << slot;
+      for (long day = from; day < to; day++) {
+        final long[] row = row(day);
+        if (word < row.length) {
+          row[word] = theBooked ? row[word] | bit : row[word] & ~bit;
+        }
+      }
+    }
+  }
+
+  private long[] freeOver(final long[] theMask, final long theFrom, final long theTo) {
+    final long[] booked = new long[theMask.length];
+    for (long day = theFrom; day < theTo; day++) {
+      final long[] row = row(day);
+      for (int w = 0; w < Math.min(booked.length, row.length); w++) {
+        booked[w] |= row[w];
+      }
+    }
+    final long[] free = new long[theMask.length];
+    for (int w = 0; w < free.length; w++) {
+      free[w] = theMask[w] & ~booked[w];
+    }
+    if (theFrom == myFirstDay) {
+      myRegistry.retainAvailable(free);
+    }
+    return free;
+  }
+
+  private long checkRange(final long theFrom, final int theDays) {
+    if (theDays < 1 || theFrom < myFirstDay || theFrom + theDays > myFirstDay + HORIZON_DAYS) {
+      throw new IllegalArgumentException("Days must lie within the " + HORIZON_DAYS
+                                         + " days from " + LocalDate.ofEpochDay(myFirstDay));
+    }
+    return theFrom;
+  }
+
+  private long[] row(final long theDay) {
+    return myBooked[(int) Math.floorMod(theDay, (long) HORIZON_DAYS)];
+  }
+
+  private static int count(final long[] theBits) {
+    int count = 0;
+    for (long word : theBits) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+}
@@ -1,6 +1,5 @@
 package vehicles;
 
-import java.math.BigDecimal;
 import java.util.Objects;
 
 /**
@@ -12,20 +11,6 @@ import java.util.Objects;
  */
 public class JetSki extends AbstractVehicle {
 
-  /** Field variable to represent the water-based vehicle fee. */
-  private static final BigDecimal MARINE_CHARGE = SPECIAL_FARE;
-  
-  /** Field variable to represent the towing fee. */
-  private static final BigDecimal TOWING_CHARGE =
-                  SPECIAL_FARE.multiply(new BigDecimal("0.01"));
-
-  /** Field variable to represent the luxury charge. */
-  private static final BigDecimal LUXURY_CHARGE =
-                  SPECIAL_FARE.multiply(new BigDecimal("0.02"));
-
-  /** Field variable to represent the sport fee. */
-  private static final BigDecimal SPORT_CHARGE = SPECIAL_FARE.multiply(new BigDecimal("0.04"));
-
   /** Field variable represents the type of jet ski. */
   private JetskiType myJetskiType;
 
@@ -89,34 +74,13 @@ public class JetSki extends AbstractVehicle {
   }
 
   /**
-   * Adds to the amount charged, based on what kind of jet ski.
+   * Retrieves what the fare of the jet ski depends on: its type.
    *
-   * @SuppressWarnings
-   * 
-   * @return rentalAmount Set to price.
+   * @return the ordinal of the jet ski type.
    */
   @Override
-  public BigDecimal calculateRentalAmount() {
-
-    BigDecimal rentalAmount = MARINE_CHARGE;
-
-    switch (myJetskiType) {
-      case CRUISER:
-        rentalAmount = rentalAmount.add(SPECIAL_FARE);
-        break;
-      case TOWING:
-        rentalAmount = rentalAmount.add(TOWING_CHARGE);
-        break;
-      case LUXURY:
-        rentalAmount = rentalAmount.add(LUXURY_CHARGE);
-        break;
-      case SPORT:
-        rentalAmount = rentalAmount.add(SPORT_CHARGE);
-        break;
-      default:
-        break;
-    }
-    return rentalAmount;
+  protected int getFareOptions() {
+    return myJetskiType.ordinal();
   }
 
   /**
@@ -1,6 +1,5 @@
 package vehicles;
 
-import java.math.BigDecimal;
 import java.util.Objects;
 
 /**
@@ -12,15 +11,6 @@ import java.util.Objects;
  */
 public class Motorcycle extends AbstractVehicle {
 
-  /** Field variable to represent the charge fee for the luxury feature. */
-  private static final BigDecimal LUXURY_CHARGE = new BigDecimal(10);
-
-  /** field variable to represent the charge fee for the navigation feature. */
-  private static final BigDecimal NAVIGATION_CHARGE = new BigDecimal(1);
-
-  /** Field variable to represent the charge fee for driving assistance feature. */
-  private static final BigDecimal DRIVING_ASSISTANCE_CHARGE = new BigDecimal(2);
-
   /** Field variable to represent if the vehicle has luxury features. */
   private final boolean myLuxury;
 
@@ -79,23 +69,13 @@ public class Motorcycle extends AbstractVehicle {
   }
 
   /**
-   * Adds to the amount charged on what type of motorcycle.
+   * Retrieves which extra features the fare depends on.
    *
-   *  @return RentalAmount to price.
-   *  
+   * @return the option bits of the features.
    */
-  public BigDecimal calculateRentalAmount() {
-    BigDecimal rentalAmount = MOTORCYCLE_PREMIUM;
-    if (myLuxury) {
-      rentalAmount = rentalAmount.add(LUXURY_CHARGE);
-    }
-    if (myNavigation) {
-      rentalAmount = rentalAmount.add(NAVIGATION_CHARGE);
-    }
-    if (myDrivingAssistance) {
-      rentalAmount = rentalAmount.add(DRIVING_ASSISTANCE_CHARGE);
-    }
-    return rentalAmount;
+  @Override
+  protected int getFareOptions() {
+    return FareTable.roadOptions(myLuxury, myNavigation, myDrivingAssistance);
   }
   
   /** 
@@ -1,7 +1,6 @@
 package vehicles;
 
 
-import java.math.BigDecimal;
 import java.util.Objects;
 
 /**
@@ -13,15 +12,6 @@ import java.util.Objects;
  */
 public class Truck extends AbstractVehicle {
 
-  /** Field variable to represent the charge fee for the luxury feature. */
-  private static final BigDecimal LUXURY_CHARGE = new BigDecimal(10);
-
-  /** field variable to represent the charge fee for the navigation feature. */
-  private static final BigDecimal NAVIGATION_CHARGE = new BigDecimal(1);
-
-  /** Field variable to represent the charge fee for driving assistance feature. */
-  private static final BigDecimal DRIVING_ASSISTANCE_CHARGE = new BigDecimal(2);
-
   /** Field variable to represent if the vehicle has luxury features. */
   private final boolean myLuxury;
 
@@ -84,23 +74,14 @@ public class Truck extends AbstractVehicle {
     return myDrivingAssistance;
   }
 
-  /** 
-   * A string representation of the truck class.
+  /**
+   * Retrieves which extra features the fare depends on.
    *
-   * @return String
+   * @return the option bits of the features.
    */
-  public BigDecimal calculateRentalAmount() {
-    BigDecimal rentalAmount = CAR_FARE;
-    if (myLuxury) {
-      rentalAmount = rentalAmount.add(LUXURY_CHARGE);
-    }
-    if (myNavigation) {
-      rentalAmount = rentalAmount.add(NAVIGATION_CHARGE);
-    }
-    if (myDrivingAssistance) {
-      rentalAmount = rentalAmount.add(DRIVING_ASSISTANCE_CHARGE);
-    }
-    return rentalAmount;
+  @Override
+  protected int getFareOptions() {
+    return FareTable.roadOptions(myLuxury, myNavigation, myDrivingAssistance);
   }
 
   /**
@@ -0,0 +1,323 @@
+package vehicles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Loads the fleet from a catalog file instead of code.
+ *
+ * <p>The catalog is a UTF-8 text file with one vehicle per line and six tab-separated
+ * fields: the unit number, vehicle type, name, VIN, options and description. The unit number
+ * is a non-negative integer that becomes the key of the vehicle, see
+ * {@link AbstractVehicle#getMyUnitId()}; names and VINs may repeat. The type is the simple name
+ * of an {@link AbstractVehicle} subclass. For boats and jet skis the options name the
+ * {@link Boat.BoatType} or {@link JetSki.JetskiType}; for every other type they are a
+ * comma-separated subset of 'luxury', 'navigation' and 'assistance'. Blank lines and lines
+ * starting with '#' are ignored.</p>
+ *
+ * <p>The file is mapped in chunks that end on a line break and the chunks are parsed in
+ * parallel. At most one chunk per worker is parsed ahead of the consumer, and the vehicles
+ * are handed over in file order, so memory use is bounded by the chunk size rather than the
+ * size of the fleet.</p>
+ *
+ * @author Ricardo Salas
+ */
+public final class VehicleCatalog {
+
+  /** Separator between the fields of a line. */
+  public static final char FIELD_SEPARATOR = '\t';
+
+  /** Separator between the options of a road vehicle. */
+  private static final String OPTION_SEPARATOR = ",";
+
+  /** Leading character of a comment line. */
+  private static final char COMMENT = '#';
+
+  /** Number of fields on every vehicle line. */
+  private static final int FIELD_COUNT = 6;
+
+  /** Preferred size of one parsed chunk. */
+  private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+  /** Option that marks a luxury vehicle. */
+  private static final String LUXURY = "luxury";
+
+  /** Option that marks a vehicle with navigation. */
+  private static final String NAVIGATION = "navigation";
+
+  /** Option that marks a vehicle with driving assistance. */
+  private static final String ASSISTANCE = "assistance";
+
+  /** Builds a vehicle of each known type from the fields of its line. */
+  private static final Map<String, VehicleFactory> FACTORIES = new HashMap<>();
+
+  static {
+    FACTORIES.put(Car.class.getSimpleName(), (name, vin, description, options) ->
+        new Car(name, vin, description, true, options.contains(LUXURY),
+                options.contains(NAVIGATION), options.contains(ASSISTANCE)));
+    FACTORIES.put(EcoCar.class.getSimpleName(), (name, vin, description, options) ->
+        new EcoCar(name, vin, description, true, options.contains(LUXURY),
+                   options.contains(NAVIGATION), options.contains(ASSISTANCE)));
+    FACTORIES.put(Truck.class.getSimpleName(), (name, vin, description, options) ->
+        new Truck(name, vin, description, true, options.contains(LUXURY),
+                  options.contains(NAVIGATION), options.contains(ASSISTANCE)));
+    FACTORIES.put(Motorcycle.class.getSimpleName(), (name, vin, description, options) ->
+        new Motorcycle(name, vin, description, true, options.contains(LUXURY),
+                       options.contains(NAVIGATION), options.contains(ASSISTANCE)));
+    FACTORIES.put(Quad.class.getSimpleName(), (name, vin, description, options) ->
+        new Quad(name, vin, description, true, options.contains(LUXURY),
+                 options.contains(NAVIGATION), options.contains(ASSISTANCE)));
+    FACTORIES.put(Boat.class.getSimpleName(), (name, vin, description, options) ->
+        new Boat(name, vin, description, Boat.BoatType.valueOf(options.get(0))));
+    FACTORIES.put(JetSki.class.getSimpleName(), (name, vin, description, options) ->
+        new JetSki(name, vin, description, JetSki.JetskiType.valueOf(options.get(0))));
+  }
+
+  /**
+   * A private constructor, to prevent external instantiation.
+   */
+  private VehicleCatalog() {
+
+  }
+
+  /**
+   * Receives the lines that could not be turned into a vehicle.
+   */
+  public interface MalformedLineHandler {
+
+    /**
+     * Called for every line that is skipped.
+     *
+     * @param theLineNumber the 1-based number of the line in the file.
+     * @param theReason why the line was skipped.
+     */
+    void malformed(long theLineNumber, String theReason);
+  }
+
+  /**
+   * Creates the vehicle described by one catalog line.
+   */
+  private interface VehicleFactory {
+
+    /**
+     * Creates a vehicle.
+     *
+     * @param theName the name of the vehicle.
+     * @param theVin the VIN of the vehicle.
+     * @param theDescription the description of the vehicle.
+     * @param theOptions the options of the vehicle, never empty for boats and jet skis.
+     * @return the vehicle.
+     */
+    AbstractVehicle create(String theName, String theVin, String theDescription,
+                           List<String> theOptions);
+  }
+
+  /**
+   * What one chunk of the file turned into.
+   */
+  private static final class ChunkResult {
+
+    /** The vehicles in line order. */
+    private final List<AbstractVehicle> myVehicles = new ArrayList<>();
+
+    /** Chunk-relative line numbers of the skipped lines. */
+    private final List<Long> myMalformedLines = new ArrayList<>();
+
+    /** Why each skipped line was skipped. */
+    private final List<String> myReasons = new ArrayList<>();
+
+    /** Number of lines in the chunk. */
+    private long myLines;
+  }
+
+  /**
+   * Loads every vehicle in a catalog file.
+   *
+   * @param theFile the name of the catalog file.
+   * @param theVehicles receives each vehicle in file order, on the calling thread.
+   * @param theMalformed receives each line that was skipped.
+   * @return the number of vehicles loaded.
+   * @throws IOException if the file could not be read.
+   */
+  public static long load(final String theFile, final Consumer<AbstractVehicle> theVehicles,
+                          final MalformedLineHandler theMalformed) throws IOException {
+    final Path path = Paths.get(theFile).toAbsolutePath();
+    if (!Files.exists(path)) {
+      throw new IOException("Vehicle catalog not found: " + path);
+    }
+    final int maxInFlight = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+    final Deque<CompletableFuture<ChunkResult>> inFlight = new ArrayDeque<>();
+    final long[] progress = {0, 0};
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long chunkStart = 0;
+      while (chunkStart < size) {
+        final long chunkEnd = chunkEnd(channel, chunkStart, size);
+        final MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                                                   chunkEnd - chunkStart);
+        inFlight.addLast(CompletableFuture.supplyAsync(() -> parseChunk(chunk)));
+        if (inFlight.size() >= maxInFlight) {
+          deliver(inFlight.removeFirst().join(), theVehicles, theMalformed, progress);
+        }
+        chunkStart = chunkEnd;
+      }
+      while (!inFlight.isEmpty()) {
+        deliver(inFlight.removeFirst().join(), theVehicles, theMalformed, progress);
+      }
+    }
+    return progress[1];
+  }
+
+  /**
+   * Finds where the chunk starting at an offset ends: just past the first line break at or
+   * after the preferred chunk size, or at the end of the file.
+   */
+  private static long chunkEnd(final FileChannel theChannel, final long theStart,
+                               final long theSize) throws IOException {
+    long position = Math.min(theSize, theStart + CHUNK_SIZE);
+    final ByteBuffer buffer = ByteBuffer.allocate(8192);
+    while (position < theSize) {
+      buffer.clear();
+      final int read = theChannel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return theSize;
+  }
+
+  private static void deliver(final ChunkResult theChunk,
+                              final Consumer<AbstractVehicle> theVehicles,
+                              final MalformedLineHandler theMalformed, final long[] theProgress) {
+    for (int i = 0; i < theChunk.myMalformedLines.size(); i++) {
+      theMalformed.malformed(theProgress[0] + theChunk.myMalformedLines.get(i),
+                             theChunk.myReasons.get(i));
+    }
+    theChunk.myVehicles.forEach(theVehicles);
+    theProgress[0] += theChunk.myLines;
+    theProgress[1] += theChunk.myVehicles.size();
+  }
+
+  private static ChunkResult parseChunk(final ByteBuffer theChunk) {
+    final ChunkResult result = new ChunkResult();
+    final String text = StandardCharsets.UTF_8.decode(theChunk).toString();
+    int lineStart = 0;
+    while (lineStart < text.length()) {
+      int lineEnd = text.indexOf('\n', lineStart);
+      final int next = lineEnd < 0 ? text.length() : lineEnd + 1;
+      if (lineEnd < 0) {
+        lineEnd = text.length();
+      }
+      if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+        lineEnd--;
+      }
+      result.myLines++;
+      parseLine(text, lineStart, lineEnd, result);
+      lineStart = next;
+    }
+    return result;
+  }
+
+  private static void parseLine(final String theText, final int theStart, final int theEnd,
+                                final ChunkResult theResult) {
+    if (theStart == theEnd || theText.charAt(theStart) == COMMENT) {
+      return;
+    }
+    final String[] fields = new String[FIELD_COUNT];
+    int fieldStart = theStart;
+    for (int i = 0; i < FIELD_COUNT - 1; i++) {
+      final int separator = theText.indexOf(FIELD_SEPARATOR, fieldStart);
+      if (separator < 0 || separator >= theEnd) {
+        malformed(theResult, "expected " + FIELD_COUNT + " tab-separated fields");
+        return;
+      }
+      fields[i] = theText.substring(fieldStart, separator);
+      fieldStart = separator + 1;
+    }
+    fields[FIELD_COUNT - 1] = theText.substring(fieldStart, theEnd);
+
+    final int unit;
+    try {
+      unit = Integer.parseInt(fields[0]);
+    } catch (final NumberFormatException e) {
+      malformed(theResult, "unit number " + fields[0] + " is not a number");
+      return;
+    }
+    if (unit < 0) {
+      malformed(theResult, "negative unit number " + unit);
+      return;
+    }
+    final String type = fields[1];
+    final VehicleFactory factory = FACTORIES.get(type);
+    if (factory == null) {
+      malformed(theResult, "unknown vehicle type " + type);
+      return;
+    }
+    if (fields[2].isEmpty()) {
+      malformed(theResult, "empty vehicle name");
+      return;
+    }
+    final List<String> options = new ArrayList<>();
+    for (String option : fields[4].split(OPTION_SEPARATOR)) {
+      if (!option.trim().isEmpty()) {
+        options.add(option.trim());
+      }
+    }
+    final boolean marine = Boat.class.getSimpleName().equals(type)
+                           || JetSki.class.getSimpleName().equals(type);
+    if (marine) {
+      if (options.size() != 1) {
+        malformed(theResult, "expected one " + type + " type");
+        return;
+      }
+      options.set(0, options.get(0).toUpperCase(Locale.ROOT));
+    } else {
+      for (String option : options) {
+        if (!LUXURY.equals(option) && !NAVIGATION.equals(option) && !ASSISTANCE.equals(option)) {
+          malformed(theResult, "unknown option " + option);
+          return;
+        }
+      }
+    }
+    final AbstractVehicle vehicle;
+    try {
+      vehicle = factory.create(fields[2], fields[3], fields[5], options);
+    } catch (final IllegalArgumentException e) {
+      malformed(theResult, "unknown " + type + " type " + options.get(0));
+      return;
+    }
+    vehicle.setMyUnitId(unit);
+    // Price the vehicle here, on the parsing worker, rather than the first time it is listed.
+    vehicle.getDailyRateUnits();
+    theResult.myVehicles.add(vehicle);
+  }
+
+  private static void malformed(final ChunkResult theResult, final String theReason) {
+    theResult.myMalformedLines.add(theResult.myLines);
+    theResult.myReasons.add(theReason);
+  }
+}
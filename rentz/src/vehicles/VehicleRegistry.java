@@ -0,0 +1,475 @@
+package vehicles;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * The fleet, keyed by the unit number of each vehicle.
+ *
+ * <p>Names and VINs are not unique, two vehicles may both be a "Toyota Camry" with VIN
+ * "V008", so every vehicle is registered under its {@link AbstractVehicle#getMyUnitId() unit
+ * number} instead and a second vehicle with the same unit number is refused. The vehicles
+ * are kept in registration order in an array, and an open addressing table of primitive ints
+ * maps each unit number to its place in that array, so {@link #get(int)} probes a few array
+ * entries and never allocates.</p>
+ *
+ * <p>A separate index maps each name to the unit numbers carrying it, for display and for
+ * records written before vehicles had unit numbers. The vehicles of each {@link VehicleType}
+ * are listed in a {@link Category} that registering and removing keep up to date, so handing
+ * out the vehicles of a type costs nothing.</p>
+ *
+ * <p>Whether each vehicle can be rented is kept in an {@link AvailabilityBitmap} with one bit
+ * per slot, which the vehicles read and update through their own methods. Renting and
+ * returning only touch the bitmap, so they are safe from any thread. A mask of the slots of
+ * each type lets the available vehicles of a type be counted and found a word at a time.
+ * The {@link FleetCalendar} of the registry keeps the same slots for the bookings of the days
+ * ahead.</p>
+ *
+ * <p>Registering and removing vehicles is not thread safe and must not overlap with rentals.
+ * The registry is filled once and then read from the event dispatch thread.</p>
+ *
+ * @author Ricardo Salas
+ *
+ */
+public final class VehicleRegistry {
+
+  /** Number of vehicles the registry has room for before it first grows. */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Marks an empty entry of the table, the entries hold slot + 1. */
+  private static final int EMPTY = 0;
+
+  /** The vehicles in registration order. */
+  private AbstractVehicle[] myVehicles = new AbstractVehicle[INITIAL_CAPACITY];
+
+  /** The unit number of each vehicle, in the same order. */
+  private int[] myKeys = new int[INITIAL_CAPACITY];
+
+  /** Open addressing table from unit number to slot + 1, at most half full. */
+  private int[] myTable = new int[INITIAL_CAPACITY * 2];
+
+  /** Number of vehicles registered. */
+  private int mySize;
+
+  /** The unit numbers of each name, in registration order. */
+  private final Map<String, int[]> myKeysByName = new HashMap<>();
+
+  /** The vehicles of each type. */
+  private final Map<VehicleType, Category> myCategories = new EnumMap<>(VehicleType.class);
+
+  /** Which slots hold a vehicle that can be rented. */
+  private AvailabilityBitmap myAvailability = new AvailabilityBitmap(INITIAL_CAPACITY);
+
+  /** The slots of each type. */
+  private final Map<VehicleType, long[]> myTypeMasks = new EnumMap<>(VehicleType.class);
+
+  /** The bookings of each slot over the days ahead. */
+  private final FleetCalendar myCalendar = new FleetCalendar(this, INITIAL_CAPACITY);
+
+  /**
+   * Creates an empty registry.
+   */
+  public VehicleRegistry() {
+    for (VehicleType type : VehicleType.values()) {
+      myTypeMasks.put(type, new long[AvailabilityBitmap.wordsFor(INITIAL_CAPACITY)]);
+      myCategories.put(type, new Category());
+    }
+  }
+
+  /**
+   * The vehicles of one type, in registration order. The registry keeps it up to date as
+   * vehicles of the type are registered and removed.
+   */
+  public static final class Category {
+
+    /** Number of vehicles a category has room for before it first grows. */
+    private static final int INITIAL_CATEGORY_CAPACITY = 8;
+
+    /** The unit numbers of the vehicles. */
+    private int[] myKeys = new int[INITIAL_CATEGORY_CAPACITY];
+
+    /** The names of the vehicles. */
+    private String[] myNames = new String[INITIAL_CATEGORY_CAPACITY];
+
+    /** Number of vehicles of the type. */
+    private int mySize;
+
+    private Category() {
+    }
+
+    /**
+     * Retrieves the number of vehicles of the type.
+     *
+     * @return the number of vehicles.
+     */
+    public int size() {
+      return mySize;
+    }
+
+    /**
+     * Retrieves the unit number of a vehicle.
+     *
+     * @param theIndex the position of the vehicle in the category.
+     * @return the unit number.
+     * @throws IndexOutOfBoundsException if there is no vehicle at the position.
+     */
+    public int getKey(final int theIndex) {
+      return myKeys[Objects.checkIndex(theIndex, mySize)];
+    }
+
+    /**
+     * Retrieves the name of a vehicle.
+     *
+     * @param theIndex the position of the vehicle in the category.
+     * @return the name.
+     * @throws IndexOutOfBoundsException if there is no vehicle at the position.
+     */
+    public String getName(final int theIndex) {
+      return myNames[Objects.checkIndex(theIndex, mySize)];
+    }
+
+    private void add(final int theKey, final String theName) {
+      if (mySize == myKeys.length) {
+        myKeys = Arrays.copyOf(myKeys, mySize * 2);
+        myNames = Arrays.copyOf(myNames, mySize * 2);
+      }
+      myKeys[mySize] = theKey;
+      myNames[mySize] = theName;
+      mySize++;
+    }
+
+    private void remove(final int theKey) {
+      for (int i = 0; i < mySize; i++) {
+        if (myKeys[i] == theKey) {
+          System.arraycopy(myKeys, i + 1, myKeys, i, mySize - i - 1);
+          System.arraycopy(myNames, i + 1, myNames, i, mySize - i - 1);
+          myNames[--mySize] = null;
+          return;
+        }
+      }
+    }
+
+    private void clear() {
+      Arrays.fill(myNames, 0, mySize, null);
+      mySize = 0;
+    }
+  }
+
+  /**
+   * Adds a vehicle under its unit number.
+   *
+   * @param theVehicle the vehicle.
+   * @throws IllegalArgumentException if the vehicle has no unit number, or another vehicle
+   *         already has it.
+   */
+  public void register(final AbstractVehicle theVehicle) {
+    final int key = theVehicle.getMyUnitId();
+    if (key < 0) {
+      throw new IllegalArgumentException(theVehicle.getMyName() + " has no unit number");
+    }
+    int index = indexFor(key);
+    while (myTable[index] != EMPTY) {
+      if (myKeys[myTable[index] - 1] == key) {
+        throw new IllegalArgumentException("Unit " + key + " is already registered to "
+                                           + myVehicles[myTable[index] - 1].getMyName());
+      }
+      index = (index + 1) & (myTable.length - 1);
+    }
+    if (mySize == myVehicles.length) {
+      grow();
+      index = indexFor(key);
+      while (myTable[index] != EMPTY) {
+        index = (index + 1) & (myTable.length - 1);
+      }
+    }
+    final VehicleType type = VehicleType.of(theVehicle);
+    myVehicles[mySize] = theVehicle;
+    myKeys[mySize] = key;
+    theVehicle.bind(myAvailability, myCalendar, mySize);
+    AvailabilityBitmap.addToMask(myTypeMasks.get(type), mySize);
+    myTable[index] = ++mySize;
+
+    final int[] named = myKeysByName.get(theVehicle.getMyName());
+    if (named == null) {
+      myKeysByName.put(theVehicle.getMyName(), new int[] {key});
+    } else {
+      final int[] more = Arrays.copyOf(named, named.length + 1);
+      more[named.length] = key;
+      myKeysByName.put(theVehicle.getMyName(), more);
+    }
+    myCategories.get(type).add(key, theVehicle.getMyName());
+  }
+
+  /**
+   * Retrieves a vehicle by its unit number.
+   *
+   * @param theKey the unit number.
+   * @return the vehicle, or null if no vehicle has the unit number.
+   */
+  public AbstractVehicle get(final int theKey) {
+    final int slot = slotOf(theKey);
+    return slot < 0 ? null : myVehicles[slot];
+  }
+
+  /**
+   * Determines whether a vehicle has the unit number.
+   *
+   * @param theKey the unit number.
+   * @return true if a vehicle is registered under it.
+   */
+  public boolean contains(final int theKey) {
+    return slotOf(theKey) >= 0;
+  }
+
+  /**
+   * Retrieves the unit numbers of every vehicle with a name.
+   *
+   * @param theName the name of the vehicles.
+   * @return the unit numbers in registration order, empty if no vehicle has the name.
+   */
+  public int[] getKeys(final String theName) {
+    final int[] keys = myKeysByName.get(theName);
+    return keys == null ? new int[0] : keys.clone();
+  }
+
+  /**
+   * Retrieves the unit number of the vehicle registered last with a name. Before vehicles had
+   * unit numbers, the fleet was a map by name in which that vehicle replaced the others, so
+   * this is the vehicle a record naming it referred to.
+   *
+   * @param theName the name of the vehicle.
+   * @return the unit number, or -1 if no vehicle has the name.
+   */
+  public int getLatestKey(final String theName) {
+    final int[] keys = myKeysByName.get(theName);
+    return keys == null ? -1 : keys[keys.length - 1];
+  }
+
+  /**
+   * Retrieves the vehicles of one type.
+   *
+   * @param theType the type of vehicle.
+   * @return the vehicles of the type in registration order, which follows later changes to
+   *         the registry.
+   */
+  public Category getCategory(final VehicleType theType) {
+    return myCategories.get(theType);
+  }
+
+  /**
+   * Counts the vehicles of one type that can be rented.
+   *
+   * @param theType the type of vehicle.
+   * @return the number of available vehicles of the type.
+   */
+  public int countAvailable(final VehicleType theType) {
+    return myAvailability.count(myTypeMasks.get(theType));
+  }
+
+  /**
+   * Finds the first vehicles of one type that can be rented.
+   *
+   * @param theType the type of vehicle.
+   * @param theLimit the most vehicles to find.
+   * @return the unit numbers of up to theLimit available vehicles, in registration order.
+   * @throws IllegalArgumentException if the limit is negative.
+   */
+  public int[] firstAvailable(final VehicleType theType, final int theLimit) {
+    if (theLimit < 0) {
+      throw new IllegalArgumentException("Invalid limit " + theLimit);
+    }
+    final int[] slots = new int[Math.min(theLimit, mySize)];
+    final int found = myAvailability.first(myTypeMasks.get(theType), slots);
+    final int[] keys = new int[found];
+    for (int i = 0; i < found; i++) {
+      keys[i] = myKeys[slots[i]];
+    }
+    return keys;
+  }
+
+  /**
+   * Retrieves the calendar of bookings of the fleet.
+   *
+   * @return the calendar, which lasts as long as the registry.
+   */
+  public FleetCalendar getCalendar() {
+    return myCalendar;
+  }
+
+  /**
+   * Hands every vehicle to an action, in registration order.
+   *
+   * @param theAction the action.
+   */
+  public void forEach(final Consumer<AbstractVehicle> theAction) {
+    for (int slot = 0; slot < mySize; slot++) {
+      theAction.accept(myVehicles[slot]);
+    }
+  }
+
+  /**
+   * Removes a vehicle. The vehicles after it move down a slot, so this takes time in
+   * proportion to the size of the fleet.
+   *
+   * @param theKey the unit number of the vehicle.
+   * @return the removed vehicle, or null if no vehicle has the unit number.
+   */
+  public AbstractVehicle remove(final int theKey) {
+    final int slot = slotOf(theKey);
+    if (slot < 0) {
+      return null;
+    }
+    final AbstractVehicle removed = myVehicles[slot];
+    removed.bind(null, null, 0);
+    myCalendar.removeSlot(slot);
+    System.arraycopy(myVehicles, slot + 1, myVehicles, slot, mySize - slot - 1);
+    System.arraycopy(myKeys, slot + 1, myKeys, slot, mySize - slot - 1);
+    myVehicles[--mySize] = null;
+    for (int moved = slot; moved < mySize; moved++) {
+      myVehicles[moved].bind(myAvailability, myCalendar, moved);
+    }
+    myAvailability.set(mySize, false);
+    rebuildTypeMasks();
+    rehash(myTable.length);
+
+    final int[] named = myKeysByName.get(removed.getMyName());
+    if (named.length == 1) {
+      myKeysByName.remove(removed.getMyName());
+    } else {
+      final int[] fewer = new int[named.length - 1];
+      int i = 0;
+      for (int key : named) {
+        if (key != theKey) {
+          fewer[i++] = key;
+        }
+      }
+      myKeysByName.put(removed.getMyName(), fewer);
+    }
+    myCategories.get(VehicleType.of(removed)).remove(theKey);
+    return removed;
+  }
+
+  /**
+   * Removes every vehicle.
+   */
+  public void clear() {
+    for (int slot = 0; slot < mySize; slot++) {
+      myVehicles[slot].bind(null, null, 0);
+    }
+    myCalendar.clear();
+    Arrays.fill(myVehicles, 0, mySize, null);
+    Arrays.fill(myTable, EMPTY);
+    mySize = 0;
+    myKeysByName.clear();
+    for (Category category : myCategories.values()) {
+      category.clear();
+    }
+    myAvailability = new AvailabilityBitmap(myVehicles.length);
+    rebuildTypeMasks();
+  }
+
+  /**
+   * Retrieves the number of vehicles.
+   *
+   * @return the number of vehicles.
+   */
+  public int size() {
+    return mySize;
+  }
+
+  /**
+   * Determines whether the registry holds no vehicles.
+   *
+   * @return true if no vehicle is registered.
+   */
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  /**
+   * Retrieves the slots of a type, for the calendar. The mask must not be changed.
+   *
+   * @param theType the type of vehicle.
+   * @return the mask of the slots of the type.
+   */
+  long[] typeMask(final VehicleType theType) {
+    return myTypeMasks.get(theType);
+  }
+
+  /**
+   * Clears the bits of the vehicles that cannot be rented now from a set of slots.
+   *
+   * @param theSlots the slots.
+   */
+  void retainAvailable(final long[] theSlots) {
+    myAvailability.retainAvailable(theSlots);
+  }
+
+  /**
+   * Retrieves the unit number of the vehicle in a slot.
+   *
+   * @param theSlot the slot.
+   * @return the unit number.
+   */
+  int keyAt(final int theSlot) {
+    return myKeys[theSlot];
+  }
+
+  /**
+   * Finds the slot of a vehicle.
+   *
+   * @param theKey the unit number.
+   * @return the slot, or -1 if no vehicle has the unit number.
+   */
+  int slotOf(final int theKey) {
+    int index = indexFor(theKey);
+    while (myTable[index] != EMPTY) {
+      if (myKeys[myTable[index] - 1] == theKey) {
+        return myTable[index] - 1;
+      }
+      index = (index + 1) & (myTable.length - 1);
+    }
+    return -1;
+  }
+
+  private int indexFor(final int theKey) {
+    final int hash = theKey * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (myTable.length - 1);
+  }
+
+  private void grow() {
+    myVehicles = Arrays.copyOf(myVehicles, myVehicles.length * 2);
+    myKeys = Arrays.copyOf(myKeys, myKeys.length * 2);
+    myAvailability = new AvailabilityBitmap(myVehicles.length);
+    myCalendar.resize(myVehicles.length);
+    for (int slot = 0; slot < mySize; slot++) {
+      myVehicles[slot].bind(myAvailability, myCalendar, slot);
+    }
+    rebuildTypeMasks();
+    rehash(myTable.length * 2);
+  }
+
+  private void rebuildTypeMasks() {
+    for (VehicleType type : VehicleType.values()) {
+      myTypeMasks.put(type, new long[AvailabilityBitmap.wordsFor(myVehicles.length)]);
+    }
+    for (int slot = 0; slot < mySize; slot++) {
+      AvailabilityBitmap.addToMask(myTypeMasks.get(VehicleType.of(myVehicles[slot])), slot);
+    }
+  }
+
+  private void rehash(final int theTableLength) {
+    myTable = new int[theTableLength];
+    for (int slot = 0; slot < mySize; slot++) {
+      int index = indexFor(myKeys[slot]);
+      while (myTable[index] != EMPTY) {
+        index = (index + 1) & (myTable.length - 1);
+      }
+      myTable[index] = slot + 1;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package vehicles;
+
+/**
+ * The categories of vehicles Rentz rents out, in the order the category buttons show them.
+ *
+ * @author Ricardo Salas
+ *
+ */
+public enum VehicleType {
+  /** Cars. */
+  CAR(Car.class),
+
+  /** Economical cars. */
+  ECO_CAR(EcoCar.class),
+
+  /** Trucks. */
+  TRUCK(Truck.class),
+
+  /** Motorcycles. */
+  MOTORCYCLE(Motorcycle.class),
+
+  /** Quads. */
+  QUAD(Quad.class),
+
+  /** Boats. */
+  BOAT(Boat.class),
+
+  /** Jet skis. */
+  JETSKI(JetSki.class);
+
+  /** The class of the vehicles in this category. */
+  private final Class<? extends AbstractVehicle> myVehicleClass;
+
+  VehicleType(final Class<? extends AbstractVehicle> theVehicleClass) {
+    this.myVehicleClass = theVehicleClass;
+  }
+
+  /**
+   * Retrieves the class of the vehicles in this category.
+   *
+   * @return the vehicle class.
+   */
+  public Class<? extends AbstractVehicle> getVehicleClass() {
+    return myVehicleClass;
+  }
+
+  /**
+   * Finds the category of a vehicle.
+   *
+   * @param theVehicle the vehicle.
+   * @return the category the vehicle belongs to.
+   * @throws IllegalArgumentException if the vehicle is of no known category.
+   */
+  public static VehicleType of(final AbstractVehicle theVehicle) {
+    for (VehicleType type : values()) {
+      if (type.myVehicleClass.isInstance(theVehicle)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown vehicle type " + theVehicle.getMyType());
+  }
+}